@@ -0,0 +1,399 @@
+import java.util.ArrayList;
+
+/**
+ * Searches the moves of the Djikstra AI with negamax and alpha-beta pruning, in place of trying every reply to every move. Positions are valued as the opponent's distance minus
+ * the AI's distance, as in PotentialMove.getValue, and are changed and put back with play and undo on a SearchBoard, so each position only repairs the shortest paths.
+ * <p>
+ * The moves at each position are tried in order of how much they matter to the current shortest paths - the hexes that either player's path goes through, and the carriers of
+ * its bridges, come first - so good moves are found early and the rest are cut off quickly. A first move is only searched until a reply makes it strictly worse than the best
+ * first move found so far, so first moves that tie with the best still have their exact value and their full list of equally good replies, and the AI chooses between them
+ * exactly as it did when every reply was tried.
+ * <p>
+ * A searcher can be given a TranspositionTable, shared between threads and turns. The distances of every position evaluated are stored in it under the position's Zobrist
+ * hash, and a position found there isn't evaluated again.
+ * <p>
+ * A searcher can be given a deadline, for iterative deepening. Once it passes, every search unwinds straight away and isAborted returns true - the results of that search are
+ * meaningless, but the graphs are left as they were.
+ *
+ * @author Steven Lowes
+ */
+public class AlphaBetaSearcher{
+    /**
+     * The value of a position where the opponent can't reach their far edge.
+     */
+    public static final int WIN = 1 << 29;
+
+    /**
+     * The deadline of a searcher that runs until it finishes.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Larger than any value, for the bounds of the search.
+     */
+    private static final int INFINITY = 1 << 30;
+
+    /**
+     * The graph of the board for the AI player.
+     */
+    private final Graph aiGraph;
+
+    /**
+     * The graph of the board for the opponent.
+     */
+    private final Graph oppGraph;
+
+    /**
+     * The number of moves to look ahead from the current board, including the first move. 1 only looks at the first moves, 2 looks at every first move and reply.
+     */
+    private final int depth;
+
+    /**
+     * The System.nanoTime after which searching stops, or NO_DEADLINE.
+     */
+    private final long deadline;
+
+    /**
+     * Whether the deadline has passed during a search.
+     */
+    private boolean aborted;
+
+    /**
+     * The table of positions already evaluated, or null to evaluate every position.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * The position being searched. Its hash is salted with the size of the board so that boards of different sizes never share entries.
+     */
+    private final SearchBoard board;
+
+    /**
+     * The colour of the AI.
+     */
+    private final Piece aiColour;
+
+    /**
+     * The moves to try at each ply of the search, in order.
+     */
+    private final int[][] moves;
+
+    /**
+     * Scratch space for the hexes on the shortest paths.
+     */
+    private final int[] pathCells;
+
+    /**
+     * How much each hex matters to the current shortest paths, for ordering moves.
+     */
+    private final int[] pathScores;
+
+    /**
+     * The value of the best first move searched so far, from the AI's point of view. Later first moves are cut off once they are known to be worse than this.
+     */
+    private int bestValue = -INFINITY;
+
+    /**
+     * The fixed point distances for the AI and the opponent at the end of the best line found by the last search.
+     */
+    private int leafAiDistance, leafOppDistance;
+
+    /**
+     * Create a searcher for the current board, with no deadline.
+     *
+     * @param aiGraph The graph of the board for the AI player, whose turn it is. Left as it was between searches.
+     * @param oppGraph The graph of the board for the opponent
+     * @param freeSpaces Every free space on the board
+     * @param depth The number of moves to look ahead, at least 1
+     */
+    public AlphaBetaSearcher(Graph aiGraph, Graph oppGraph, ArrayList<Coordinate> freeSpaces, int depth){
+        this(aiGraph, oppGraph, freeSpaces, depth, NO_DEADLINE);
+    }
+
+    /**
+     * Create a searcher for the current board.
+     *
+     * @param aiGraph The graph of the board for the AI player, whose turn it is. Left as it was between searches.
+     * @param oppGraph The graph of the board for the opponent
+     * @param freeSpaces Every free space on the board
+     * @param depth The number of moves to look ahead, at least 1
+     * @param deadline The System.nanoTime at which to give up, or NO_DEADLINE
+     */
+    public AlphaBetaSearcher(Graph aiGraph, Graph oppGraph, ArrayList<Coordinate> freeSpaces, int depth, long deadline){
+        this(aiGraph, oppGraph, freeSpaces, depth, deadline, null, Zobrist.EMPTY);
+    }
+
+    /**
+     * Create a searcher for the current board, which looks up and stores the positions it evaluates in a table.
+     *
+     * @param aiGraph The graph of the board for the AI player, whose turn it is. Left as it was between searches.
+     * @param oppGraph The graph of the board for the opponent
+     * @param freeSpaces Every free space on the board
+     * @param depth The number of moves to look ahead, at least 1
+     * @param deadline The System.nanoTime at which to give up, or NO_DEADLINE
+     * @param table The table of positions already evaluated, or null
+     * @param hash The Zobrist hash of the current board
+     */
+    public AlphaBetaSearcher(Graph aiGraph, Graph oppGraph, ArrayList<Coordinate> freeSpaces, int depth, long deadline, TranspositionTable table, long hash){
+        this.aiGraph = aiGraph;
+        this.oppGraph = oppGraph;
+        this.depth = Math.max(depth, 1);
+        this.deadline = deadline;
+        this.table = table;
+        aiColour = aiGraph.getColour();
+        //Keys for hexes that can't exist, one per dimension
+        long salt = Zobrist.key(-1 - aiGraph.getSizeX(), Piece.RED) ^ Zobrist.key(-1 - aiGraph.getSizeY(), Piece.BLUE);
+        board = new SearchBoard(aiGraph, oppGraph, freeSpaces, hash ^ salt);
+        int cells = aiGraph.getSizeX() * aiGraph.getSizeY();
+
+        moves = new int[this.depth + 1][cells];
+        pathCells = new int[3 * (cells + 1)];
+        pathScores = new int[cells];
+    }
+
+    /**
+     * @return boolean indicating whether the deadline passed during a search, so its results can't be used
+     */
+    public boolean isAborted(){
+        return aborted;
+    }
+
+    /**
+     * Put moves in the order they should be searched, most important to the current shortest paths first.
+     *
+     * @param moves The moves to order
+     *
+     * @return A new list of the same moves in order
+     */
+    public ArrayList<Coordinate> orderMoves(ArrayList<Coordinate> moves){
+        int[] hexes = new int[moves.size()];
+        for(int i = 0; i < hexes.length; i++){
+            hexes[i] = board.getHex(moves.get(i));
+        }
+        sortByPaths(hexes, hexes.length);
+        ArrayList<Coordinate> ordered = new ArrayList<Coordinate>(hexes.length);
+        for(int hex : hexes){
+            ordered.add(board.getCoordinate(hex));
+        }
+        return ordered;
+    }
+
+    /**
+     * Find the value of a first move, assuming both players then play their best moves to the end of the search. If the move turns out to be worse than a first move already
+     * searched, the search stops early and the value returned is only an upper bound, which is still worse than that move.
+     *
+     * @param move The first move, which must be free
+     *
+     * @return The move with the opponent's best replies and the distances they lead to. Meaningless, and possibly null, if the deadline passed during the search.
+     */
+    public PotentialMove searchMove(Coordinate move){
+        board.play(board.getHex(move));
+        int replyCount = depth == 1 ? 0 : listMoves(1);
+        PotentialMove result = null;
+        int moveValue = INFINITY;
+        if(replyCount == 0){
+            //Not looking any further, or nothing left for the opponent to play
+            moveValue = evaluate(true);
+            result = new PotentialMove(move, null, leafAiDistance, leafOppDistance);
+        }
+        for(int i = 0; i < replyCount && !aborted; i++){
+            int reply = moves[1][i];
+            board.play(reply);
+            int value;
+            if(depth == 2){
+                value = evaluate(true);
+            }
+            else{
+                //Only values that could beat or tie this move's best reply so far, without falling below the best first move, need to be exact
+                value = negamax(true, depth - 2, 2, bestValue - 1, moveValue == INFINITY ? INFINITY : moveValue + 1);
+            }
+            board.undo();
+            if(aborted){
+                //The value of a search cut short by the deadline means nothing
+                board.undo();
+                return result;
+            }
+
+            //The opponent wants the lowest value
+            if(value < moveValue || result == null){
+                moveValue = value;
+                result = new PotentialMove(move, board.getCoordinate(reply), leafAiDistance, leafOppDistance);
+            }
+            else if(value == moveValue){
+                result.addSecondMove(board.getCoordinate(reply));
+            }
+            if(moveValue < bestValue){
+                //Already worse than a first move searched before - no need to look at the other replies
+                break;
+            }
+        }
+        board.undo();
+        bestValue = Math.max(bestValue, moveValue);
+        return result;
+    }
+
+    /**
+     * Search a position with negamax and alpha-beta pruning.
+     *
+     * @param aiToMove Whether it is the AI's turn
+     * @param depthLeft The number of moves still to look ahead
+     * @param ply The number of moves made since the current board
+     * @param alpha The value the player to move is already sure of
+     * @param beta The value the other player is already sure of, above which this position won't be reached
+     *
+     * @return The value of the position from the point of view of the player to move, exact if it is between alpha and beta
+     */
+    private int negamax(boolean aiToMove, int depthLeft, int ply, int alpha, int beta){
+        int value = evaluate(depthLeft == 0);
+        if(depthLeft == 0 || leafAiDistance == Graph.NO_PATH || leafOppDistance == Graph.NO_PATH){
+            return aiToMove ? value : -value;
+        }
+        int moveCount = listMoves(ply);
+        if(moveCount == 0){
+            return aiToMove ? value : -value;
+        }
+        int best = -INFINITY;
+        int bestAiDistance = leafAiDistance;
+        int bestOppDistance = leafOppDistance;
+        for(int i = 0; i < moveCount && !aborted; i++){
+            board.play(moves[ply][i]);
+            int score = -negamax(!aiToMove, depthLeft - 1, ply + 1, -beta, -alpha);
+            board.undo();
+            if(aborted){
+                //The score of a search cut short by the deadline means nothing, so don't let it become the best
+                break;
+            }
+            if(score > best){
+                best = score;
+                bestAiDistance = leafAiDistance;
+                bestOppDistance = leafOppDistance;
+            }
+            if(best > alpha){
+                alpha = best;
+            }
+            if(alpha >= beta){
+                break;
+            }
+        }
+        leafAiDistance = bestAiDistance;
+        leafOppDistance = bestOppDistance;
+        return best;
+    }
+
+    /**
+     * Work out the distances for the current position, or find them in the table, and store them as the end of the line being searched. A leaf is rolled back straight after,
+     * so its distances are found with Graph.getGoalDistance, which heads for the far edge and leaves the shortest path trees alone, rather than repairing the trees for the move
+     * and again for the rollback.
+     *
+     * @param leaf Whether the search goes no further than this position
+     *
+     * @return The value of the position from the AI's point of view - the opponent's distance minus the AI's, or +/- WIN if either player can't get across
+     */
+    private int evaluate(boolean leaf){
+        if(deadline != NO_DEADLINE && System.nanoTime() > deadline){
+            aborted = true;
+        }
+        if(table == null){
+            findDistances(leaf);
+        }
+        else{
+            long entry = table.probe(board.getHash());
+            if(entry == TranspositionTable.NONE){
+                findDistances(leaf);
+                if(aiColour == Piece.RED){
+                    table.store(board.getHash(), TranspositionTable.pack(leafAiDistance, leafOppDistance));
+                }
+                else{
+                    table.store(board.getHash(), TranspositionTable.pack(leafOppDistance, leafAiDistance));
+                }
+            }
+            else if(aiColour == Piece.RED){
+                leafAiDistance = TranspositionTable.getRedDistance(entry);
+                leafOppDistance = TranspositionTable.getBlueDistance(entry);
+            }
+            else{
+                leafAiDistance = TranspositionTable.getBlueDistance(entry);
+                leafOppDistance = TranspositionTable.getRedDistance(entry);
+            }
+        }
+        if(leafOppDistance == Graph.NO_PATH){
+            return WIN;
+        }
+        if(leafAiDistance == Graph.NO_PATH){
+            return -WIN;
+        }
+        return leafOppDistance - leafAiDistance;
+    }
+
+    /**
+     * Work out the distances for both players in the current position, and store them as the end of the line being searched.
+     *
+     * @param leaf Whether the search goes no further than this position
+     */
+    private void findDistances(boolean leaf){
+        if(leaf){
+            leafAiDistance = aiGraph.getGoalDistance();
+            leafOppDistance = oppGraph.getGoalDistance();
+        }
+        else{
+            leafAiDistance = aiGraph.getFixedDistance();
+            leafOppDistance = oppGraph.getFixedDistance();
+        }
+    }
+
+    /**
+     * Fill the list of moves for a ply with every free hex, in the order they should be searched.
+     *
+     * @param ply The ply to list moves for
+     *
+     * @return The number of moves
+     */
+    private int listMoves(int ply){
+        int count = board.getFreeCount();
+        for(int i = 0; i < count; i++){
+            moves[ply][i] = board.getFree(i);
+        }
+        sortByPaths(moves[ply], count);
+        return count;
+    }
+
+    /**
+     * Sort hexes so that the ones that matter most to the current shortest paths of both players come first. Hexes that are equally important keep their order.
+     *
+     * @param hexes The hexes to sort
+     * @param count The number of hexes
+     */
+    private void sortByPaths(int[] hexes, int count){
+        aiGraph.getFixedDistance();
+        oppGraph.getFixedDistance();
+        int pathCount = aiGraph.getPathCells(pathCells);
+        for(int i = 0; i < pathCount; i++){
+            pathScores[pathCells[i]]++;
+        }
+        pathCount = oppGraph.getPathCells(pathCells);
+        for(int i = 0; i < pathCount; i++){
+            pathScores[pathCells[i]]++;
+        }
+
+        //Insertion sort - only the hexes on the paths move
+        for(int i = 1; i < count; i++){
+            int hex = hexes[i];
+            int j = i - 1;
+            while(j >= 0 && pathScores[hexes[j]] < pathScores[hex]){
+                hexes[j + 1] = hexes[j];
+                j--;
+            }
+            hexes[j + 1] = hex;
+        }
+
+        //Clear the scores for next time
+        pathCount = aiGraph.getPathCells(pathCells);
+        for(int i = 0; i < pathCount; i++){
+            pathScores[pathCells[i]] = 0;
+        }
+        pathCount = oppGraph.getPathCells(pathCells);
+        for(int i = 0; i < pathCount; i++){
+            pathScores[pathCells[i]] = 0;
+        }
+    }
+}
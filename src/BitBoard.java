@@ -0,0 +1,585 @@
+/**
+ * An implementation of a hex board which stores the pieces of each colour as a packed bitset of longs rather than an array of Piece values. Hex (x, y) is stored in bit
+ * x * sizeY + y. Win checking is a flood fill which expands a whole word of hexes at a time by shifting the bitset towards each of the six neighbours and masking it with the
+ * player's pieces, rather than visiting hexes one by one. Piece arrays are only created in getBoardView and read in setBoardView.
+ * <p>
+ * The flood fill is also used on its own by MCTS playouts through connects, which takes the pieces to check rather than reading the board's, so a playout can fill in a copy
+ * of getPieces without placing each piece.
+ *
+ * @author Steven Lowes
+ */
+public class BitBoard implements SnapshotBoardInterface{
+    /**
+     * The width of the board in hexes.
+     */
+    private int sizeX;
+
+    /**
+     * The height of the board in hexes.
+     */
+    private int sizeY;
+
+    /**
+     * The positions of the red pieces, one bit per hex.
+     * <p>
+     * Default: null
+     */
+    private long[] red;
+
+    /**
+     * The positions of the blue pieces, one bit per hex.
+     * <p>
+     * Default: null
+     */
+    private long[] blue;
+
+    /**
+     * Every hex on the board, used to clear bits shifted off the end of the board.
+     */
+    private long[] allMask;
+
+    /**
+     * Every hex that is not on the top row (y = 0). Hexes on the top row have no neighbour at y - 1, so are removed before shifting down by one.
+     */
+    private long[] notFirstRowMask;
+
+    /**
+     * Every hex that is not on the bottom row (y = sizeY - 1). Hexes on the bottom row have no neighbour at y + 1, so are removed before shifting up by one.
+     */
+    private long[] notLastRowMask;
+
+    /**
+     * The top row, where red starts.
+     */
+    private long[] redStartMask;
+
+    /**
+     * The bottom row, where red finishes.
+     */
+    private long[] redEndMask;
+
+    /**
+     * The left column, where blue starts.
+     */
+    private long[] blueStartMask;
+
+    /**
+     * The right column, where blue finishes.
+     */
+    private long[] blueEndMask;
+
+    /**
+     * Scratch space for the flood fill - the hexes reached so far.
+     */
+    private long[] reached;
+
+    /**
+     * Scratch space for the flood fill - the hexes reached after one more step.
+     */
+    private long[] expanded;
+
+    /**
+     * The state of the game, Piece.RED for red won, Piece.BLUE for blue won, Piece.UNSET for neither play yet won.
+     * <p>
+     * Default: Piece.UNSET
+     */
+    private Piece gameWon;
+
+    /**
+     * The Piece (Representing player colour) whose turn it currently is.
+     * <p>
+     * Default: Piece.RED
+     */
+    private Piece turn;
+
+    /**
+     * The number of pieces on the board, used to identify snapshots.
+     */
+    private int version;
+
+    /**
+     * The Zobrist hash of the pieces on the board, updated as each piece is placed.
+     */
+    private long hash;
+
+    /**
+     * The snapshot of the current state of the board, or null if one hasn't been taken since the last piece was placed.
+     */
+    private BoardSnapshot snapshot;
+
+    /**
+     * Create a new BitBoard object, setting turn to Piece.RED and not initialising the bitsets.
+     */
+    public BitBoard(){
+        turn = Piece.RED;
+        gameWon = Piece.UNSET;
+        hash = Zobrist.EMPTY;
+    }
+
+    /**
+     * Sets the board height and width in hexes, also initialising the bitsets and masks.
+     *
+     * @param sizeX how wide the board will be.
+     * @param sizeY how tall the board will be.
+     *
+     * @return boolean indicating successful operation.
+     *
+     * @throws InvalidBoardSizeException One or both of provided sizes were invalid (less than or equal to 0).
+     * @throws BoardAlreadySizedException The size of the board has already been set.
+     */
+    public boolean setBoardSize(int sizeX, int sizeY) throws InvalidBoardSizeException, BoardAlreadySizedException{
+        if(red != null){
+            throw new BoardAlreadySizedException();
+        }
+        if(sizeX <= 0 || sizeY <= 0){
+            throw new InvalidBoardSizeException();
+        }
+
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        int words = (sizeX * sizeY + 63) >>> 6;
+        red = new long[words];
+        blue = new long[words];
+        allMask = new long[words];
+        notFirstRowMask = new long[words];
+        notLastRowMask = new long[words];
+        redStartMask = new long[words];
+        redEndMask = new long[words];
+        blueStartMask = new long[words];
+        blueEndMask = new long[words];
+        reached = new long[words];
+        expanded = new long[words];
+
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                int bit = i * sizeY + j;
+                setBit(allMask, bit);
+                if(j != 0){
+                    setBit(notFirstRowMask, bit);
+                }
+                if(j != sizeY - 1){
+                    setBit(notLastRowMask, bit);
+                }
+                if(j == 0){
+                    setBit(redStartMask, bit);
+                }
+                if(j == sizeY - 1){
+                    setBit(redEndMask, bit);
+                }
+                if(i == 0){
+                    setBit(blueStartMask, bit);
+                }
+                if(i == sizeX - 1){
+                    setBit(blueEndMask, bit);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sizes the board and fills it from a 2-dimensional array of Piece values. The turn is worked out from the number of pieces of each colour - red if there are equal numbers,
+     * otherwise blue.
+     *
+     * @param boardView The board state to copy.
+     *
+     * @return boolean indicating successful operation.
+     *
+     * @throws InvalidBoardSizeException boardView has no hexes.
+     * @throws BoardAlreadySizedException The size of the board has already been set.
+     */
+    public boolean setBoardView(Piece[][] boardView) throws InvalidBoardSizeException, BoardAlreadySizedException{
+        if(boardView.length == 0){
+            throw new InvalidBoardSizeException();
+        }
+        return setBoardView(new BoardSnapshot(boardView, 0));
+    }
+
+    /**
+     * Sizes the board and fills it from a snapshot. The turn is worked out from the number of pieces of each colour - red if there are equal numbers, otherwise blue.
+     *
+     * @param boardView The board state to copy.
+     *
+     * @return boolean indicating successful operation.
+     *
+     * @throws InvalidBoardSizeException boardView has no hexes.
+     * @throws BoardAlreadySizedException The size of the board has already been set.
+     */
+    public boolean setBoardView(BoardSnapshot boardView) throws InvalidBoardSizeException, BoardAlreadySizedException{
+        setBoardSize(boardView.getSizeX(), boardView.getSizeY());
+
+        int redCount = 0;
+        int blueCount = 0;
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                Piece piece = boardView.getPiece(i, j);
+                if(piece == Piece.RED){
+                    setBit(red, i * sizeY + j);
+                    redCount++;
+                }
+                else if(piece == Piece.BLUE){
+                    setBit(blue, i * sizeY + j);
+                    blueCount++;
+                }
+                else{
+                    continue;
+                }
+                hash ^= Zobrist.key(i * sizeY + j, piece);
+            }
+        }
+        version = redCount + blueCount;
+        if(redCount > blueCount){
+            turn = Piece.BLUE;
+        }
+        return true;
+    }
+
+    /**
+     * Creates a new 2-dimensional array of Piece values representing the board. Nothing is shared with the bitsets, so the array is safe to give to a player.
+     *
+     * @return a 2D array of Piece indicating current board state.
+     *
+     * @throws NoBoardDefinedException The board has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public Piece[][] getBoardView() throws NoBoardDefinedException{
+        if(red == null){
+            throw new NoBoardDefinedException();
+        }
+        Piece[][] boardView = new Piece[sizeX][sizeY];
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                boardView[i][j] = getPiece(i, j);
+            }
+        }
+        return boardView;
+    }
+
+    /**
+     * Returns an immutable snapshot of the board, packed from the bitsets. Calling this repeatedly without placing a piece returns the same snapshot.
+     *
+     * @return a snapshot of the current board state.
+     *
+     * @throws NoBoardDefinedException The board has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public BoardSnapshot getSnapshot() throws NoBoardDefinedException{
+        if(red == null){
+            throw new NoBoardDefinedException();
+        }
+        if(snapshot == null){
+            PackedBoard pieces = new PackedBoard(sizeX, sizeY);
+            for(int i = 0; i < sizeX; i++){
+                for(int j = 0; j < sizeY; j++){
+                    Piece piece = getPiece(i, j);
+                    if(piece != Piece.UNSET){
+                        pieces.set(i, j, piece);
+                    }
+                }
+            }
+            snapshot = new BoardSnapshot(pieces, version, hash, sizeX * sizeY - version);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param colour Piece.RED or Piece.BLUE
+     *
+     * @return A copy of the bitset of the colour's pieces, one bit per hex, which can be filled in and passed to connects.
+     */
+    public long[] getPieces(Piece colour){
+        return (colour == Piece.RED ? red : blue).clone();
+    }
+
+    /**
+     * Get the piece at a position on the board. The position is not checked.
+     *
+     * @param x The x position
+     * @param y The y position
+     *
+     * @return Piece.RED, Piece.BLUE or Piece.UNSET
+     */
+    public Piece getPiece(int x, int y){
+        int bit = x * sizeY + y;
+        if(getBit(red, bit)){
+            return Piece.RED;
+        }
+        else if(getBit(blue, bit)){
+            return Piece.BLUE;
+        }
+        return Piece.UNSET;
+    }
+
+    /**
+     * Attempts to place a piece on the board. Also handles concession and increments turn. The checks are made by tryPlace, and any problem it reports is thrown as the matching
+     * exception.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param move the position the player wishes to place a piece. Also stores concession data.
+     *
+     * @return boolean indicating successful operation.
+     *
+     * @throws PositionAlreadyTakenException Player attempts to make a move to a position that is not equal to Piece.Unset.
+     * @throws InvalidPositionException Player attempts to make a move to an invalid board position where x or y are less than zero.
+     * @throws InvalidColourException The colour parameter is not equal to Piece.RED or Piece.BLUE.
+     * @throws NoBoardDefinedException Board has not been defined - can't place piece on undefined board - call setBoardSize(xSize,ySize)
+     */
+    public boolean placePiece(Piece colour, MoveInterface move) throws PositionAlreadyTakenException, InvalidPositionException, InvalidColourException, NoBoardDefinedException{
+        switch(tryPlace(colour, move)){
+            case WRONG_TURN:
+                //a player is attempting to make a move when it is not their turn
+                throw new InvalidColourException();
+            case NO_BOARD:
+                throw new NoBoardDefinedException();
+            case INVALID_POSITION:
+                throw new InvalidPositionException();
+            case POSITION_TAKEN:
+                throw new PositionAlreadyTakenException();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Attempts to make a move, reporting a problem with the move as a result rather than an exception. Otherwise the same as placePiece.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param move the position the player wishes to place a piece. Also stores concession data.
+     *
+     * @return PlaceResult.PLACED or PlaceResult.CONCEDED if the move was made, otherwise the reason it couldn't be.
+     */
+    public PlaceResult tryPlace(Piece colour, MoveInterface move){
+        if(turn != colour || (colour != Piece.RED && colour != Piece.BLUE)){
+            return PlaceResult.WRONG_TURN;
+        }
+
+        if(red == null){
+            return PlaceResult.NO_BOARD;
+        }
+
+        //check for concession
+        if(move.hasConceded()){
+            if(colour == Piece.RED){
+                gameWon = Piece.BLUE;
+            }
+            else{
+                gameWon = Piece.RED;
+            }
+            return PlaceResult.CONCEDED;
+        }
+
+        int xPosition = move.getXPosition();
+        int yPosition = move.getYPosition();
+
+        if(xPosition >= sizeX || yPosition >= sizeY || xPosition < 0 || yPosition < 0){
+            return PlaceResult.INVALID_POSITION;
+        }
+
+        int bit = xPosition * sizeY + yPosition;
+        if(getBit(red, bit) || getBit(blue, bit)){
+            return PlaceResult.POSITION_TAKEN;
+        }
+
+        if(colour == Piece.RED){
+            setBit(red, bit);
+            turn = Piece.BLUE;
+        }
+        else{
+            setBit(blue, bit);
+            turn = Piece.RED;
+        }
+        hash ^= Zobrist.key(bit, colour);
+        version++;
+        snapshot = null;
+        return PlaceResult.PLACED;
+    }
+
+    /**
+     * Checks whether red, then blue, has won using playerWon.
+     *
+     * @return Piece indicating winner of game, Piece.RED or Piece.BLUE, or Piece.UNSET if game is not won.
+     *
+     * @throws NoBoardDefinedException The board has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public Piece gameWon() throws NoBoardDefinedException{
+        if(red == null){
+            throw new NoBoardDefinedException();
+        }
+
+        //check for the cached value first
+        if(gameWon == Piece.RED || gameWon == Piece.BLUE){
+            return gameWon;
+        }
+
+        try{
+            if(playerWon(Piece.RED)){
+                gameWon = Piece.RED;
+            }
+            else if(playerWon(Piece.BLUE)){
+                gameWon = Piece.BLUE;
+            }
+        }
+        catch(InvalidColourException e){
+            System.out.println("Strange error - these are hardcoded.");
+            e.printStackTrace();
+        }
+        return gameWon;
+    }
+
+    /**
+     * Check whether a player has connected their two edges. Starting from the player's pieces on their first edge, every step adds all of the player's pieces adjacent to those
+     * already reached, a whole word at a time, until either the far edge is reached or a step adds nothing new.
+     *
+     * @param player The colour of the player to check
+     *
+     * @return boolean indicating whether that player has won
+     *
+     * @throws NoBoardDefinedException The board has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     * @throws InvalidColourException Player parameter isn't Piece.RED or Piece.BLUE
+     */
+    public boolean playerWon(Piece player) throws NoBoardDefinedException, InvalidColourException{
+        if(red == null){
+            throw new NoBoardDefinedException();
+        }
+        if(player != Piece.RED && player != Piece.BLUE){
+            throw new InvalidColourException();
+        }
+
+        return connects(player, player == Piece.RED ? red : blue);
+    }
+
+    /**
+     * Check whether a set of pieces connects a player's two edges, using the same flood fill as playerWon. Nothing is checked or allocated, so this is cheap enough to call at the
+     * end of every playout. Not thread safe, as the flood fill uses the board's scratch space.
+     *
+     * @param player The colour whose edges to connect, Piece.RED or Piece.BLUE
+     * @param pieces The player's pieces, one bit per hex, the same length as the bitsets from getPieces
+     *
+     * @return boolean indicating whether the pieces connect the edges
+     */
+    public boolean connects(Piece player, long[] pieces){
+        long[] startMask = player == Piece.RED ? redStartMask : blueStartMask;
+        long[] endMask = player == Piece.RED ? redEndMask : blueEndMask;
+
+        boolean any = false;
+        for(int i = 0; i < reached.length; i++){
+            reached[i] = pieces[i] & startMask[i];
+            any |= reached[i] != 0;
+        }
+
+        while(any){
+            if(intersects(reached, endMask)){
+                return true;
+            }
+
+            //Expand to every neighbour: (0,+1) (0,-1) (+1,0) (-1,0) (+1,-1) (-1,+1)
+            System.arraycopy(reached, 0, expanded, 0, reached.length);
+            orShiftedUp(reached, notLastRowMask, 1, expanded);
+            orShiftedDown(reached, notFirstRowMask, 1, expanded);
+            orShiftedUp(reached, allMask, sizeY, expanded);
+            orShiftedDown(reached, allMask, sizeY, expanded);
+            orShiftedUp(reached, notFirstRowMask, sizeY - 1, expanded);
+            orShiftedDown(reached, notLastRowMask, sizeY - 1, expanded);
+
+            //Keep only the player's pieces, stop if nothing new was reached
+            any = false;
+            for(int i = 0; i < expanded.length; i++){
+                expanded[i] &= pieces[i];
+                any |= expanded[i] != reached[i];
+            }
+            long[] temp = reached;
+            reached = expanded;
+            expanded = temp;
+        }
+        return false;
+    }
+
+    /**
+     * @return The width of the board in hexes.
+     */
+    public int getSizeX(){
+        return sizeX;
+    }
+
+    /**
+     * @return The height of the board in hexes.
+     */
+    public int getSizeY(){
+        return sizeY;
+    }
+
+    /**
+     * OR (source AND mask) shifted towards higher bit numbers into destination.
+     *
+     * @param source The bitset to shift
+     * @param mask Which bits of source to shift
+     * @param shift The number of bits to shift by
+     * @param destination The bitset to OR the result into
+     */
+    private static void orShiftedUp(long[] source, long[] mask, int shift, long[] destination){
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for(int i = destination.length - 1; i >= wordShift; i--){
+            int j = i - wordShift;
+            long value = (source[j] & mask[j]) << bitShift;
+            if(bitShift != 0 && j > 0){
+                value |= (source[j - 1] & mask[j - 1]) >>> (64 - bitShift);
+            }
+            destination[i] |= value;
+        }
+    }
+
+    /**
+     * OR (source AND mask) shifted towards lower bit numbers into destination.
+     *
+     * @param source The bitset to shift
+     * @param mask Which bits of source to shift
+     * @param shift The number of bits to shift by
+     * @param destination The bitset to OR the result into
+     */
+    private static void orShiftedDown(long[] source, long[] mask, int shift, long[] destination){
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for(int i = 0; i + wordShift < source.length; i++){
+            int j = i + wordShift;
+            long value = (source[j] & mask[j]) >>> bitShift;
+            if(bitShift != 0 && j + 1 < source.length){
+                value |= (source[j + 1] & mask[j + 1]) << (64 - bitShift);
+            }
+            destination[i] |= value;
+        }
+    }
+
+    /**
+     * @param bits The first bitset
+     * @param mask The second bitset
+     *
+     * @return boolean indicating whether any bit is set in both bitsets
+     */
+    private static boolean intersects(long[] bits, long[] mask){
+        for(int i = 0; i < bits.length; i++){
+            if((bits[i] & mask[i]) != 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param bits The bitset to read
+     * @param bit The bit number
+     *
+     * @return boolean indicating whether the bit is set
+     */
+    private static boolean getBit(long[] bits, int bit){
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Set a bit in a bitset.
+     *
+     * @param bits The bitset to change
+     * @param bit The bit number
+     */
+    private static void setBit(long[] bits, int bit){
+        bits[bit >>> 6] |= 1L << bit;
+    }
+}
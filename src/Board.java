@@ -1,12 +1,13 @@
+import java.util.Random;
+
 /**
- * An implementation of a hex board, storing the positions as a 2-dimensional array of Piece values Included win-checking algorithm is implemented as depth-first search designed to
- * be fast in the most common circumstances at the expense of being slower in unusual circumstances. The board is intended to be thrown away and a new one created once a game is
- * completed.
+ * An implementation of a hex board, storing the positions in a PackedBoard at 2 bits per hex. Connections between pieces are tracked in a disjoint set as each piece is
+ * placed, so checking for a winner never has to search the board. The board is intended to be thrown away and a new one created once a game is completed.
  *
  * @author Steven Lowes
  * @version 1.0 29/03/2016
  */
-public class Board implements BoardInterface{
+public class Board implements SnapshotBoardInterface{
     /**
      * The width of the board in hexes.
      */
@@ -18,12 +19,36 @@ public class Board implements BoardInterface{
     private int sizeY;
 
     /**
-     * A 2-dimensional array of Piece values indicating the state of the board. boardArray is initialised to be full of Piece.UNSET as opposed to null in setBoardSize as opposed to
-     * the constructor.
+     * The pieces on the board, packed 2 bits per hex so that very large boards stay small. pieces is initialised to be full of Piece.UNSET in setBoardSize as opposed to the
+     * constructor. Snapshots share its blocks, and it copies a shared block itself before changing it.
      * <p>
      * Default: null
      */
-    private Piece[][] boardArray;
+    private PackedBoard pieces;
+
+    /**
+     * The hexes that no piece has been placed on.
+     * <p>
+     * Default: null
+     */
+    private FreeCellSet free;
+
+    /**
+     * The number of pieces placed so far, used to identify snapshots.
+     */
+    private int version;
+
+    /**
+     * The Zobrist hash of the pieces on the board, updated as each piece is placed.
+     * <p>
+     * Default: Zobrist.EMPTY
+     */
+    private long hash;
+
+    /**
+     * The snapshot of the current state of the board, or null if one hasn't been taken since the last piece was placed.
+     */
+    private BoardSnapshot snapshot;
 
     /**
      * The state of the game, Piece.RED for red won, Piece.BLUE for blue won, Piece.UNSET for neither play yet won.
@@ -40,15 +65,51 @@ public class Board implements BoardInterface{
     private Piece turn;
 
     /**
-     * Create a new Board object, setting turn to Piece.RED and not initialising boardArray.
+     * Tracks which hexes are connected to each other. Every hex has an element numbered x * sizeY + y, followed by four virtual elements for the edges of the board - see
+     * redStart, redEnd, blueStart and blueEnd. Pieces of the same colour that are adjacent are joined, as are pieces and the edges of their own colour that they touch.
+     * <p>
+     * Default: null
+     */
+    private DisjointSet connections;
+
+    /**
+     * The adjacency tables for the size of this board.
+     * <p>
+     * Default: null
+     */
+    private BoardGeometry geometry;
+
+    /**
+     * The element in connections representing the top edge of the board (y = 0), which red is trying to connect to redEnd.
+     */
+    private int redStart;
+
+    /**
+     * The element in connections representing the bottom edge of the board (y = sizeY - 1).
+     */
+    private int redEnd;
+
+    /**
+     * The element in connections representing the left edge of the board (x = 0), which blue is trying to connect to blueEnd.
+     */
+    private int blueStart;
+
+    /**
+     * The element in connections representing the right edge of the board (x = sizeX - 1).
+     */
+    private int blueEnd;
+
+    /**
+     * Create a new Board object, setting turn to Piece.RED and not initialising pieces.
      */
     public Board(){
         turn = Piece.RED;
         gameWon = Piece.UNSET;
+        hash = Zobrist.EMPTY;
     }
 
     /**
-     * Sets the board height and width in hexes, also initialising boardArray.
+     * Sets the board height and width in hexes, also initialising pieces.
      *
      * @param sizeX how wide the board will be.
      * @param sizeY how tall the board will be.
@@ -59,19 +120,22 @@ public class Board implements BoardInterface{
      * @throws BoardAlreadySizedException The size of the board has already been set.
      */
     public boolean setBoardSize(int sizeX, int sizeY) throws InvalidBoardSizeException, BoardAlreadySizedException{
-        if(boardArray != null){ //boardArray is default null, non-null indicates it is initialised
+        if(pieces != null){ //pieces is default null, non-null indicates it is initialised
             throw new BoardAlreadySizedException();
         }
 
         if(sizeX > 0 && sizeY > 0){
             this.sizeX = sizeX;
             this.sizeY = sizeY;
-            boardArray = new Piece[sizeX][sizeY];
-            for(int i = 0; i < sizeX; i++){
-                for(int j = 0; j < sizeY; j++){
-                    boardArray[i][j] = Piece.UNSET;
-                }
-            }
+            pieces = new PackedBoard(sizeX, sizeY);
+            int cells = sizeX * sizeY;
+            redStart = cells;
+            redEnd = cells + 1;
+            blueStart = cells + 2;
+            blueEnd = cells + 3;
+            connections = new DisjointSet(cells + 4);
+            free = new FreeCellSet(cells);
+            geometry = BoardGeometry.get(sizeX, sizeY);
         }
         else{
             throw new InvalidBoardSizeException();
@@ -80,24 +144,110 @@ public class Board implements BoardInterface{
     }
 
     /**
-     * Returns a deep copy of boardArray.
+     * Returns a deep copy of the pieces on the board, as a Piece[][].
      * <p>
      * A copy is required as it means that the variables stored in the board object cannot be edited by another class directly. The deep copy is required to ensure that every value
      * stored in the array is copied.
      *
      * @return a deep copy 2D array of Piece indicating current board state.
      *
-     * @throws NoBoardDefinedException boardArray has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
      */
     public Piece[][] getBoardView() throws NoBoardDefinedException{
-        if(boardArray == null){
+        if(pieces == null){
+            throw new NoBoardDefinedException();
+        }
+        return pieces.toBoardView();
+    }
+
+    /**
+     * Returns an immutable snapshot of the board. Unlike getBoardView, the pieces aren't copied - the snapshot shares the blocks of pieces, and placePiece copies any shared block
+     * before changing it. The free hexes aren't copied either - the snapshot only finds them if it is asked for them. Calling this repeatedly without placing a piece returns the
+     * same snapshot.
+     *
+     * @return a snapshot of the current board state.
+     *
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public BoardSnapshot getSnapshot() throws NoBoardDefinedException{
+        if(pieces == null){
+            throw new NoBoardDefinedException();
+        }
+        if(snapshot == null){
+            snapshot = new BoardSnapshot(pieces.share(), version, hash, free.size());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns a copy of the board packed at 2 bits per hex, for analysing boards too large to copy as a Piece[][]. The copy shares its blocks with the board, so nothing is
+     * copied until one of them changes.
+     *
+     * @return a packed copy of the current board state.
+     *
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public PackedBoard getPackedView() throws NoBoardDefinedException{
+        if(pieces == null){
+            throw new NoBoardDefinedException();
+        }
+        return pieces.share();
+    }
+
+    /**
+     * @return The number of hexes with no piece on them.
+     *
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public int getFreeCount() throws NoBoardDefinedException{
+        if(pieces == null){
+            throw new NoBoardDefinedException();
+        }
+        return free.size();
+    }
+
+    /**
+     * Get a free hex by position, for looping over the free hexes without scanning the board. Positions change as pieces are placed.
+     *
+     * @param index The position, from 0 to getFreeCount() - 1
+     *
+     * @return The free hex at that position, numbered x * sizeY + y
+     *
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public int getFreeCell(int index) throws NoBoardDefinedException{
+        if(pieces == null){
             throw new NoBoardDefinedException();
         }
-        return Utility.clone(boardArray);
+        return free.get(index);
     }
 
     /**
-     * Attempts to place a piece on the board. Also handles concession and increments turn.
+     * Pick a free hex, each with equal probability.
+     *
+     * @param rand The random number generator to use
+     *
+     * @return A free hex, numbered x * sizeY + y
+     *
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     */
+    public int getRandomFreeCell(Random rand) throws NoBoardDefinedException{
+        if(pieces == null){
+            throw new NoBoardDefinedException();
+        }
+        return free.random(rand);
+    }
+
+    /**
+     * @return The Zobrist hash of the pieces currently on the board.
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /**
+     * Attempts to place a piece on the board. Also handles concession and increments turn. The checks are made by tryPlace, and any problem it reports is thrown as the matching
+     * exception.
      *
      * @param colour the colour of the player that is making the move.
      * @param move the position the player wishes to place a piece. Also stores concession data.
@@ -110,72 +260,122 @@ public class Board implements BoardInterface{
      * @throws NoBoardDefinedException Board has not been defined - can't place piece on undefined board - call setBoardSize(xSize,ySize)
      */
     public boolean placePiece(Piece colour, MoveInterface move) throws PositionAlreadyTakenException, InvalidPositionException, InvalidColourException, NoBoardDefinedException{
-        if(turn != colour){
-            //a player is attempting to make a move when it is not their turn
-            throw new InvalidColourException();
+        switch(tryPlace(colour, move)){
+            case WRONG_TURN:
+                //a player is attempting to make a move when it is not their turn
+                throw new InvalidColourException();
+            case NO_BOARD:
+                throw new NoBoardDefinedException();
+            case INVALID_POSITION:
+                throw new InvalidPositionException();
+            case POSITION_TAKEN:
+                throw new PositionAlreadyTakenException();
+            default:
+                return true;
         }
+    }
 
-        if(boardArray == null){
-            throw new NoBoardDefinedException();
+    /**
+     * Attempts to make a move, reporting a problem with the move as a result rather than an exception. Otherwise the same as placePiece.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param move the position the player wishes to place a piece. Also stores concession data.
+     *
+     * @return PlaceResult.PLACED or PlaceResult.CONCEDED if the move was made, otherwise the reason it couldn't be.
+     */
+    public PlaceResult tryPlace(Piece colour, MoveInterface move){
+        PlaceResult result = checkTurn(colour);
+        if(result != null){
+            return result;
         }
 
         //check for concession
         if(move.hasConceded()){
             if(colour == Piece.RED){
                 gameWon = Piece.BLUE;
-                return true;
             }
-            else if(colour == Piece.BLUE){
+            else{
                 gameWon = Piece.RED;
-                return true;
             }
+            return PlaceResult.CONCEDED;
         }
+        return place(colour, move.getXPosition(), move.getYPosition());
+    }
 
-        //Place the piece on the board
-        int xPosition = move.getXPosition();
-        int yPosition = move.getYPosition();
-
-        if(xPosition >= sizeX || yPosition >= sizeY || xPosition < 0 || yPosition < 0){
-            throw new InvalidPositionException();
+    /**
+     * Attempts to place a piece on the board, reporting a problem with the move as a result rather than an exception. No exceptions are created, so this can be used to probe
+     * many moves cheaply.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param x the x position to place the piece
+     * @param y the y position to place the piece
+     *
+     * @return PlaceResult.PLACED if the piece was placed, otherwise the reason it couldn't be.
+     */
+    public PlaceResult tryPlace(Piece colour, int x, int y){
+        PlaceResult result = checkTurn(colour);
+        if(result != null){
+            return result;
         }
+        return place(colour, x, y);
+    }
 
-        Piece currentPiece = boardArray[xPosition][yPosition];
-        if(currentPiece != Piece.UNSET){
-            if(currentPiece == null){
-                System.out.println("Strange error - it seems like the board hasn't been initialised properly because there is a null value mapped onto the board.");
-            }
-            throw new PositionAlreadyTakenException();
+    /**
+     * Check that a colour is allowed to move on this board.
+     *
+     * @param colour the colour of the player that is making the move.
+     *
+     * @return null if the colour can move, otherwise the reason it can't.
+     */
+    private PlaceResult checkTurn(Piece colour){
+        if(turn != colour || (colour != Piece.RED && colour != Piece.BLUE)){
+            return PlaceResult.WRONG_TURN;
         }
-
-        if(turn == null || turn == Piece.UNSET){
-            System.out.println("Turn value unset in Board.placePiece");
-            return false;
+        if(pieces == null){
+            return PlaceResult.NO_BOARD;
         }
+        return null;
+    }
 
-        try{
-            boardArray[xPosition][yPosition] = colour;
-        }
-        catch(IndexOutOfBoundsException e){
-            //a player is trying to make a move to a position that does not exist
-            throw new InvalidPositionException();
+    /**
+     * Place a piece for a colour that is allowed to move, if the position is on the board and free.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param xPosition the x position to place the piece
+     * @param yPosition the y position to place the piece
+     *
+     * @return PlaceResult.PLACED if the piece was placed, otherwise the reason it couldn't be.
+     */
+    private PlaceResult place(Piece colour, int xPosition, int yPosition){
+        if(xPosition >= sizeX || yPosition >= sizeY || xPosition < 0 || yPosition < 0){
+            return PlaceResult.INVALID_POSITION;
         }
-        if(!nextTurn()){
-            return false;
+
+        if(pieces.getPiece(xPosition, yPosition) != Piece.UNSET){
+            return PlaceResult.POSITION_TAKEN;
         }
-        return true;
+
+        //Copies the block first if it is shared with a snapshot
+        pieces.set(xPosition, yPosition, colour);
+        hash ^= Zobrist.key(xPosition * sizeY + yPosition, colour);
+        free.remove(xPosition * sizeY + yPosition);
+        version++;
+        snapshot = null;
+        connect(xPosition, yPosition, colour);
+        nextTurn();
+        return PlaceResult.PLACED;
     }
 
     /**
-     * Checks whether red, then blue, has won, using PlayerWon. This uses a depth-first search which should be faster than a breadth-first search in most cases, but in some cases
-     * may be slower due to the need to maintain a sorted list.
+     * Checks whether red, then blue, has won by looking up whether the edges of their colour are in the same set of connections.
      *
      * @return Piece indicating winner of game, Piece.RED or Piece.BLUE, or Piece.UNSET if game is not won.
      *
-     * @throws NoBoardDefinedException boardArray has not been initialised - call setBoardSize(int sizeX, int sizeY).
+     * @throws NoBoardDefinedException pieces has not been initialised - call setBoardSize(int sizeX, int sizeY).
      */
     public Piece gameWon() throws NoBoardDefinedException{
 
-        if(boardArray == null){
+        if(pieces == null){
             throw new NoBoardDefinedException();
         }
 
@@ -184,47 +384,58 @@ public class Board implements BoardInterface{
             return gameWon;
         }
 
-        Piece gameWon = null;
+        if(connections.connected(redStart, redEnd)){
+            return Piece.RED;
+        }
+        else if(connections.connected(blueStart, blueEnd)){
+            return Piece.BLUE;
+        }
+        return Piece.UNSET;
+    }
 
-        try{
-            if(Utility.playerWon(boardArray, Piece.RED)){
-                gameWon = Piece.RED;
+    /**
+     * Join a newly placed piece to the adjacent pieces of the same colour, and to the edges of the board of its colour that it touches.
+     *
+     * @param x The x position of the new piece
+     * @param y The y position of the new piece
+     * @param colour The colour of the new piece
+     */
+    private void connect(int x, int y, Piece colour){
+        int cell = geometry.getHex(x, y);
+        for(int i = geometry.getAdjacentStart(cell); i < geometry.getAdjacentStart(cell + 1); i++){
+            int adjacent = geometry.getAdjacent(i);
+            if(pieces.getPiece(adjacent) == colour){
+                connections.union(cell, adjacent);
             }
-            else if(Utility.playerWon(boardArray, Piece.BLUE)){
-                gameWon = Piece.BLUE;
+        }
+
+        if(colour == Piece.RED){
+            if(y == 0){
+                connections.union(cell, redStart);
             }
-            else{
-                gameWon = Piece.UNSET;
+            if(y == sizeY - 1){
+                connections.union(cell, redEnd);
             }
         }
-        catch(InvalidColourException e){
-            //playerWon throws invalid colour exception
-            System.out.println("Strange error - these are hardcoded.");
-            e.printStackTrace();
+        else{
+            if(x == 0){
+                connections.union(cell, blueStart);
+            }
+            if(x == sizeX - 1){
+                connections.union(cell, blueEnd);
+            }
         }
-        return gameWon;
     }
 
     /**
      * Increment turn - Piece.RED becomes Piece.BLUE and vice versa.
-     *
-     * @return boolean No error has been thrown and execution has been successful
-     *
-     * @throws InvalidColourException Turn is not set - cannot be incremented
      */
-    private boolean nextTurn() throws InvalidColourException{
-        boolean success = false;
+    private void nextTurn(){
         if(turn == Piece.RED){
             turn = Piece.BLUE;
-            success = true;
-        }
-        else if(turn == Piece.BLUE){
-            turn = Piece.RED;
-            success = true;
         }
         else{
-            throw new InvalidColourException();
+            turn = Piece.RED;
         }
-        return success;
     }
 }
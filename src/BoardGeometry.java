@@ -0,0 +1,269 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed tables of which hexes are adjacent to, and form bridges with, each hex on a board of a given size. Hexes are numbered x * sizeY + y. The tables are flat int arrays
+ * so that looking at the neighbours of a hex doesn't create any objects, unlike Coordinate.getAdjactents and Coordinate.getBridges. One geometry is created for each board size
+ * and shared between every board, graph and thread that uses that size.
+ * <p>
+ * The neighbours of a hex are found between two offsets, for example: for(int i = geometry.getAdjacentStart(hex); i &lt; geometry.getAdjacentStart(hex + 1); i++)
+ *
+ * @author Steven Lowes
+ */
+public class BoardGeometry{
+    /**
+     * The x offsets of the six adjacent hexes, paired with ADJACENT_Y. The same order as Coordinate.getAdjactents.
+     */
+    private static final int[] ADJACENT_X = new int[]{-1, -1, 0, 0, +1, +1};
+
+    /**
+     * The y offsets of the six adjacent hexes, paired with ADJACENT_X.
+     */
+    private static final int[] ADJACENT_Y = new int[]{0, +1, +1, -1, 0, -1};
+
+    /**
+     * The x offsets of the six hexes that can be bridged to, paired with BRIDGE_Y. The same order as Coordinate.getBridges.
+     */
+    private static final int[] BRIDGE_X = new int[]{-2, -1, +1, +2, +1, -1};
+
+    /**
+     * The y offsets of the six hexes that can be bridged to, paired with BRIDGE_X.
+     */
+    private static final int[] BRIDGE_Y = new int[]{+1, -1, -2, -1, +1, +2};
+
+    /**
+     * The geometry for each board size that has been asked for, keyed by sizeX * 2^32 + sizeY.
+     */
+    private static final ConcurrentHashMap<Long, BoardGeometry> geometries = new ConcurrentHashMap<Long, BoardGeometry>();
+
+    /**
+     * The width of the board in hexes.
+     */
+    private final int sizeX;
+
+    /**
+     * The height of the board in hexes.
+     */
+    private final int sizeY;
+
+    /**
+     * The neighbours of hex h are adjacents[adjacentStart[h]] to adjacents[adjacentStart[h + 1] - 1].
+     */
+    private final int[] adjacentStart;
+
+    /**
+     * The neighbours of every hex, one after another.
+     */
+    private final int[] adjacents;
+
+    /**
+     * The bridges from hex h are bridges[bridgeStart[h]] to bridges[bridgeStart[h + 1] - 1].
+     */
+    private final int[] bridgeStart;
+
+    /**
+     * The hexes at the far end of the bridges from every hex, one after another.
+     */
+    private final int[] bridges;
+
+    /**
+     * The two hexes adjacent to both ends of each bridge (the carrier), at 2 * i and 2 * i + 1 for bridges[i].
+     */
+    private final int[] bridgeCarriers;
+
+    /**
+     * Build the tables for a board size.
+     *
+     * @param sizeX The width of the board in hexes
+     * @param sizeY The height of the board in hexes
+     */
+    private BoardGeometry(int sizeX, int sizeY){
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        int cells = sizeX * sizeY;
+
+        //Count first so the arrays are the right size
+        adjacentStart = new int[cells + 1];
+        bridgeStart = new int[cells + 1];
+        int adjacentCount = 0;
+        int bridgeCount = 0;
+        for(int hex = 0; hex < cells; hex++){
+            adjacentStart[hex] = adjacentCount;
+            bridgeStart[hex] = bridgeCount;
+            int x = hex / sizeY;
+            int y = hex % sizeY;
+            for(int i = 0; i < 6; i++){
+                if(valid(x + ADJACENT_X[i], y + ADJACENT_Y[i])){
+                    adjacentCount++;
+                }
+                if(valid(x + BRIDGE_X[i], y + BRIDGE_Y[i])){
+                    bridgeCount++;
+                }
+            }
+        }
+        adjacentStart[cells] = adjacentCount;
+        bridgeStart[cells] = bridgeCount;
+
+        adjacents = new int[adjacentCount];
+        bridges = new int[bridgeCount];
+        bridgeCarriers = new int[bridgeCount * 2];
+        adjacentCount = 0;
+        bridgeCount = 0;
+        for(int hex = 0; hex < cells; hex++){
+            int x = hex / sizeY;
+            int y = hex % sizeY;
+            for(int i = 0; i < 6; i++){
+                if(valid(x + ADJACENT_X[i], y + ADJACENT_Y[i])){
+                    adjacents[adjacentCount++] = getHex(x + ADJACENT_X[i], y + ADJACENT_Y[i]);
+                }
+            }
+        }
+        for(int hex = 0; hex < cells; hex++){
+            int x = hex / sizeY;
+            int y = hex % sizeY;
+            for(int i = 0; i < 6; i++){
+                int bridgeX = x + BRIDGE_X[i];
+                int bridgeY = y + BRIDGE_Y[i];
+                if(valid(bridgeX, bridgeY)){
+                    int other = getHex(bridgeX, bridgeY);
+                    //The carrier is the two hexes adjacent to both ends, which are always on the board if both ends are
+                    int found = 0;
+                    for(int j = adjacentStart[hex]; j < adjacentStart[hex + 1]; j++){
+                        for(int k = adjacentStart[other]; k < adjacentStart[other + 1]; k++){
+                            if(adjacents[j] == adjacents[k]){
+                                bridgeCarriers[bridgeCount * 2 + found] = adjacents[j];
+                                found++;
+                            }
+                        }
+                    }
+                    bridges[bridgeCount++] = other;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the geometry for a board size, creating it the first time each size is asked for.
+     *
+     * @param sizeX The width of the board in hexes
+     * @param sizeY The height of the board in hexes
+     *
+     * @return The shared geometry for that size
+     */
+    public static BoardGeometry get(int sizeX, int sizeY){
+        Long key = ((long) sizeX << 32) + sizeY;
+        BoardGeometry geometry = geometries.get(key);
+        if(geometry == null){
+            geometry = new BoardGeometry(sizeX, sizeY);
+            BoardGeometry existing = geometries.putIfAbsent(key, geometry);
+            if(existing != null){
+                geometry = existing;
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * @param x The x position
+     * @param y The y position
+     *
+     * @return The hex number of the position
+     */
+    public int getHex(int x, int y){
+        return x * sizeY + y;
+    }
+
+    /**
+     * @param hex The hex number
+     *
+     * @return The x position of the hex
+     */
+    public int getX(int hex){
+        return hex / sizeY;
+    }
+
+    /**
+     * @param hex The hex number
+     *
+     * @return The y position of the hex
+     */
+    public int getY(int hex){
+        return hex % sizeY;
+    }
+
+    /**
+     * @return The number of hexes on the board
+     */
+    public int getCells(){
+        return sizeX * sizeY;
+    }
+
+    /**
+     * @return The width of the board in hexes
+     */
+    public int getSizeX(){
+        return sizeX;
+    }
+
+    /**
+     * @return The height of the board in hexes
+     */
+    public int getSizeY(){
+        return sizeY;
+    }
+
+    /**
+     * @param hex The hex number, or the number of hexes to get the end of the last hex's neighbours
+     *
+     * @return The offset of the first neighbour of the hex
+     */
+    public int getAdjacentStart(int hex){
+        return adjacentStart[hex];
+    }
+
+    /**
+     * @param index An offset between getAdjacentStart(hex) and getAdjacentStart(hex + 1)
+     *
+     * @return The neighbour at that offset
+     */
+    public int getAdjacent(int index){
+        return adjacents[index];
+    }
+
+    /**
+     * @param hex The hex number, or the number of hexes to get the end of the last hex's bridges
+     *
+     * @return The offset of the first bridge from the hex
+     */
+    public int getBridgeStart(int hex){
+        return bridgeStart[hex];
+    }
+
+    /**
+     * @param index An offset between getBridgeStart(hex) and getBridgeStart(hex + 1)
+     *
+     * @return The hex at the far end of the bridge at that offset
+     */
+    public int getBridge(int index){
+        return bridges[index];
+    }
+
+    /**
+     * @param index An offset between getBridgeStart(hex) and getBridgeStart(hex + 1)
+     * @param carrier 0 or 1
+     *
+     * @return One of the two hexes adjacent to both ends of the bridge at that offset
+     */
+    public int getBridgeCarrier(int index, int carrier){
+        return bridgeCarriers[index * 2 + carrier];
+    }
+
+    /**
+     * @param x The x position
+     * @param y The y position
+     *
+     * @return boolean indicating whether the position is on the board
+     */
+    private boolean valid(int x, int y){
+        return x >= 0 && y >= 0 && x < sizeX && y < sizeY;
+    }
+}
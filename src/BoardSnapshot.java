@@ -0,0 +1,190 @@
+/**
+ * An immutable view of the board at one point in the game. The pieces are held in a PackedBoard that shares its blocks with the board's own rather than copying them, and the
+ * board copies a block before changing it if that block is shared (copy-on-write), so handing out a snapshot costs next to nothing and each move copies at most one block.
+ *
+ * @author Steven Lowes
+ */
+public class BoardSnapshot{
+    /**
+     * The pieces on the board. Never changed once the snapshot has been created.
+     */
+    private final PackedBoard pieces;
+
+    /**
+     * The number of pieces that had been placed on the board when the snapshot was taken. Two snapshots of the same board with the same version are identical.
+     */
+    private final int version;
+
+    /**
+     * The Zobrist hash of the pieces on the board.
+     */
+    private final long hash;
+
+    /**
+     * The number of free hexes.
+     */
+    private final int freeCount;
+
+    /**
+     * The free hexes, numbered x * sizeY + y, or null if getFreeCell hasn't been called yet. Found by scanning the pieces the first time they are needed, so that taking a
+     * snapshot doesn't copy anything. Volatile, so a snapshot shared between threads only ever hands out a complete array.
+     */
+    private volatile int[] freeCells;
+
+    /**
+     * Create a new snapshot of an array of pieces, packing them into a PackedBoard. The hash and free hexes are found by scanning the array.
+     *
+     * @param hexes The pieces on the board
+     * @param version The version of the board
+     */
+    public BoardSnapshot(Piece[][] hexes, int version){
+        this(new PackedBoard(hexes), version, Zobrist.hash(hexes), countFreeCells(hexes));
+    }
+
+    /**
+     * Create a new snapshot of a packed board whose hash and number of free hexes are already known, without copying it. The packed board must never be changed afterwards.
+     *
+     * @param pieces The pieces on the board
+     * @param version The version of the board
+     * @param hash The Zobrist hash of the pieces
+     * @param freeCount The number of free hexes
+     */
+    public BoardSnapshot(PackedBoard pieces, int version, long hash, int freeCount){
+        this.pieces = pieces;
+        this.version = version;
+        this.hash = hash;
+        this.freeCount = freeCount;
+    }
+
+    /**
+     * @param hexes The pieces on the board
+     *
+     * @return The number of hexes that are Piece.UNSET
+     */
+    private static int countFreeCells(Piece[][] hexes){
+        int count = 0;
+        for(Piece[] column : hexes){
+            for(Piece piece : column){
+                if(piece == Piece.UNSET){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param pieces The pieces on the board
+     * @param count The number of hexes that are Piece.UNSET
+     *
+     * @return The hexes that are Piece.UNSET, numbered x * sizeY + y
+     */
+    private static int[] findFreeCells(PackedBoard pieces, int count){
+        int[] freeCells = new int[count];
+        int cells = pieces.getSizeX() * pieces.getSizeY();
+        count = 0;
+        for(int hex = 0; hex < cells; hex++){
+            if(pieces.getPiece(hex) == Piece.UNSET){
+                freeCells[count++] = hex;
+            }
+        }
+        return freeCells;
+    }
+
+    /**
+     * Get the piece at a position on the board.
+     *
+     * @param x The x position
+     * @param y The y position
+     *
+     * @return The Piece at (x, y)
+     */
+    public Piece getPiece(int x, int y){
+        return pieces.getPiece(x, y);
+    }
+
+    /**
+     * Get the piece on a hex.
+     *
+     * @param hex The hex number, x * sizeY + y
+     *
+     * @return The Piece on the hex
+     */
+    public Piece getPiece(int hex){
+        return pieces.getPiece(hex);
+    }
+
+    /**
+     * @return The width of the board in hexes.
+     */
+    public int getSizeX(){
+        return pieces.getSizeX();
+    }
+
+    /**
+     * @return The height of the board in hexes.
+     */
+    public int getSizeY(){
+        return pieces.getSizeY();
+    }
+
+    /**
+     * @return The version of the board when the snapshot was taken.
+     */
+    public int getVersion(){
+        return version;
+    }
+
+    /**
+     * @return The Zobrist hash of the pieces on the board.
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /**
+     * @return The number of free hexes, without scanning the board.
+     */
+    public int getFreeCount(){
+        return freeCount;
+    }
+
+    /**
+     * Get a free hex by position, for looping over the free hexes. The board is only scanned for them on the first call.
+     *
+     * @param index The position, from 0 to getFreeCount() - 1
+     *
+     * @return The free hex at that position, numbered x * sizeY + y
+     */
+    public int getFreeCell(int index){
+        int[] cells = freeCells;
+        if(cells == null){
+            cells = findFreeCells(pieces, freeCount);
+            freeCells = cells;
+        }
+        return cells[index];
+    }
+
+    /**
+     * Copy the pieces into an existing array of the same size, so that the array can be reused.
+     *
+     * @param boardView The array to copy into
+     */
+    public void copyInto(Piece[][] boardView){
+        pieces.copyInto(boardView);
+    }
+
+    /**
+     * @return A deep copy of the pieces on the board, which is safe to change.
+     */
+    public Piece[][] toBoardView(){
+        return pieces.toBoardView();
+    }
+
+    /**
+     * @return The pieces on the board, packed. A copy that shares the snapshot's blocks, so it is safe to change.
+     */
+    public PackedBoard getPackedBoard(){
+        return pieces.copy();
+    }
+}
@@ -1,18 +1,22 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * An AI player implementation of the PlayerInterface interface which implements four AI types: Mirror If player colour is blue, and the board size satisfies y = x + 1, Mirror the
- * opponent as seen here: http://mathworld.wolfram.com/GameofHex.html Middle If it is the first move, go for the middle hex Djikstra Look at every possible move up to two layers
+ * opponent as seen here: http://mathworld.wolfram.com/GameofHex.html Middle If it is the first move, go for the middle hex Djikstra Look at every possible move several layers
  * deep, evaluating the value of the board using djikstra's algorithm. Assumes that the opponent plays intelligently. The Djikstra AI can also block the opponent, and use advanced
  * techniques such as bridges. Quickly becomes slow on larger boards. MCTS Use monte-carlo tree search, playing out a number of games randomly - choose the move with the highest
  * average win rate. Assumes randomly playing opponent, but is the most comprehensive AI and works in any situation.
  *
  * @author Steven Lowes
  */
-public class ComputerPlayer_xvhn44 implements PlayerInterface{
+public class ComputerPlayer_xvhn44 implements SnapshotPlayerInterface{
     /**
      * The AI algorithm that should be used.
      * <p>
@@ -26,7 +30,7 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     private Piece[][] pastBoard;
 
     /**
-     * The time the AI should take to decide on a move in seconds. Used for MCTS only.
+     * The time the AI should take to decide on a move in seconds. The MCTS AI uses all of it, the Djikstra AI stops searching deeper once it is up.
      * <p>
      * Default: 60
      */
@@ -37,6 +41,28 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      */
     private Piece colour;
 
+    /**
+     * The deepest the Djikstra AI searches, in moves including its own. It deepens one move at a time until it reaches this or runs out of time.
+     * <p>
+     * Default: 2
+     */
+    private int maxSearchDepth = 2;
+
+    /**
+     * How busy each worker thread was during the last Djikstra AI search, or null if there hasn't been one.
+     * <p>
+     * Default: null
+     */
+    private ArrayList<WorkerStats> workerStats;
+
+    /**
+     * The positions the Djikstra AI has already evaluated, shared by every worker thread and kept from one move to the next. Created by the first Djikstra AI search, so players
+     * that never use it don't pay for it.
+     * <p>
+     * Default: null
+     */
+    private TranspositionTable table;
+
     /**
      * Create a new object setting fields with defaults to their default value.
      */
@@ -68,7 +94,40 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     }
 
     /**
-     * Runs the correct method based on AI Type - defaulting to AIType.COMBO.
+     * Set the deepest the Djikstra AI searches, in moves including its own. Whatever the depth, it stops deepening when the timeGoal is up.
+     *
+     * @param maxSearchDepth The new maximum search depth, at least 1
+     *
+     * @return boolean indicates successful operation
+     */
+    public boolean setMaxSearchDepth(int maxSearchDepth){
+        if(maxSearchDepth < 1){
+            return false;
+        }
+        this.maxSearchDepth = maxSearchDepth;
+        return true;
+    }
+
+    /**
+     * Return how busy each worker thread was during the last Djikstra AI search, to check that the work was split evenly between them.
+     *
+     * @return The stats of each worker that ran part of the search, or null if the Djikstra AI hasn't been used
+     */
+    public ArrayList<WorkerStats> getWorkerStats(){
+        return workerStats;
+    }
+
+    /**
+     * Return the table of positions the Djikstra AI has evaluated, so that its hit rate can be checked.
+     *
+     * @return The table, or null if the Djikstra AI hasn't been used
+     */
+    public TranspositionTable getTranspositionTable(){
+        return table;
+    }
+
+    /**
+     * Runs the correct method based on AI Type - defaulting to AIType.COMBO. The array passed is not changed or copied.
      *
      * @param boardView the current state of the board
      *
@@ -77,18 +136,31 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      * @throws NoValidMovesException Every space on the board is filled.
      */
     public MoveInterface makeMove(Piece[][] boardView) throws NoValidMovesException{
+        return makeMove(new BoardSnapshot(boardView, 0));
+    }
+
+    /**
+     * Runs the correct method based on AI Type - defaulting to AIType.COMBO.
+     *
+     * @param snapshot the current state of the board
+     *
+     * @return MoveInterface object representing the chosen move or concession.
+     *
+     * @throws NoValidMovesException Every space on the board is filled.
+     */
+    public MoveInterface makeMove(BoardSnapshot snapshot) throws NoValidMovesException{
         MoveInterface move;
         if(aiType == null){
-            move = makeMove(boardView, AIType.COMBO);
+            move = makeMove(snapshot, AIType.COMBO);
         }
         else{
-            move = makeMove(boardView, aiType);
+            move = makeMove(snapshot, aiType);
         }
         return move;
     }
 
     /**
-     * Creates a list of free spaces on the board, fills the free spaces map, and passes those to the chosen AI method
+     * Creates a list of free spaces on the board and passes it to the chosen AI method
      *
      * @param boardView The current state of the board.
      *
@@ -96,41 +168,30 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      *
      * @throws NoValidMovesException Indicates that no valid moves are possible - e.g. all cells on the board are already occupied by a piece.
      */
-    private MoveInterface makeMove(Piece[][] boardView, AIType aiType) throws NoValidMovesException{
-
-        //Generate list of free spaces
-        ArrayList<Coordinate> freeSpaces = new ArrayList<Coordinate>();
-        for(int i = 0; i < boardView.length; ++i){
-            for(int j = 0; j < boardView[0].length; ++j){
-                if(boardView[i][j] == Piece.UNSET){
-                    freeSpaces.add(new Coordinate(i, j));
-                }
-            }
+    private MoveInterface makeMove(BoardSnapshot boardView, AIType aiType) throws NoValidMovesException{
+
+        //The snapshot already knows which spaces are free, so the board doesn't need to be scanned
+        ArrayList<Coordinate> freeSpaces = new ArrayList<Coordinate>(boardView.getFreeCount());
+        for(int i = 0; i < boardView.getFreeCount(); ++i){
+            int cell = boardView.getFreeCell(i);
+            freeSpaces.add(new Coordinate(cell / boardView.getSizeY(), cell % boardView.getSizeY()));
         }
 
         if(freeSpaces.size() == 0){ //All spaces filled
             throw new NoValidMovesException();
         }
 
-        //Map first move to new lists of free spaces (i.e. 1,1 2,2 and 3,3 are free, 1,1 will be mapped to {2,2 3,3})
-        HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap = new HashMap<Coordinate, ArrayList<Coordinate>>();
-        for(Coordinate coords : freeSpaces){
-            ArrayList<Coordinate> freeSpacesCopy = (ArrayList<Coordinate>) freeSpaces.clone();
-            freeSpacesCopy.remove(coords);
-            freeSpacesMap.put(coords, freeSpacesCopy);
-        }
-
         MoveInterface move = new Move();
 
         //Run the appropriate AI
         if(aiType == AIType.DJIKSTRA){
-            move = djikstraAI(boardView, freeSpaces, freeSpacesMap);
+            move = djikstraAI(boardView, freeSpaces);
         }
         else if(aiType == AIType.MCTS){
-            move = mctsAI(boardView, freeSpaces, freeSpacesMap);
+            move = mctsAI(boardView, freeSpaces);
         }
         else{
-            move = comboAI(boardView, freeSpaces, freeSpacesMap);
+            move = comboAI(boardView, freeSpaces);
         }
         return move;
     }
@@ -141,20 +202,19 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      *
      * @param boardView The current state of the board
      * @param freeSpaces The spaces on the board that are Piece.UNSET
-     * @param freeSpacesMap A map - for each free space, the spaces that would be free after placing a piece at that location
      *
      * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
      */
-    private MoveInterface comboAI(Piece[][] boardView, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap){
+    private MoveInterface comboAI(BoardSnapshot boardView, ArrayList<Coordinate> freeSpaces){
         MoveInterface move = new Move();
 
         //For the first move, the Combo AI chooses the middle hexagon
-        if(freeSpaces.size() == boardView.length * boardView[0].length){
+        if(freeSpaces.size() == boardView.getSizeX() * boardView.getSizeY()){
             move = chooseMiddleAI(boardView);
         }
 
         //If the AI is playing blue and the board is sized (x,x+1), mirror the opponent
-        else if(boardView.length + 1 == boardView[0].length && colour == Piece.BLUE){
+        else if(boardView.getSizeX() + 1 == boardView.getSizeY() && colour == Piece.BLUE){
             move = mirrorAI(boardView);
         }
         else{
@@ -165,16 +225,15 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
             else{
                 otherColour = Piece.RED;
             }
-            Graph playerGraph = new Graph();
-            playerGraph.populateGraph(boardView, colour);
-            Double distance1 = playerGraph.getDistance();
-            Graph oppGraph = new Graph();
-            oppGraph.populateGraph(boardView, otherColour);
-            Double distance2 = oppGraph.getDistance();
+            //The graphs are built once, and shared with the djikstra AI if it is used
+            GraphBase playerBase = new GraphBase(boardView, colour);
+            Double distance1 = playerBase.getDistance();
+            GraphBase oppBase = new GraphBase(boardView, otherColour);
+            Double distance2 = oppBase.getDistance();
 
             //If the djikstra AI can't see a way to win, use MCTS (Shouldn't happen under normal operation but is included to reduce the number of assumptions made)
             if(distance1 == null || distance2 == null || distance1 < Graph.UNSET_WEIGHT){
-                move = mctsAI(boardView, freeSpaces, freeSpacesMap);
+                move = mctsAI(boardView, freeSpaces);
             }
 
             //The other player has bridges the whole way across the board - the game is unwinnable
@@ -183,13 +242,13 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
             }
 
             //The board is equivalent to one larger than 14x14 (i.e. 15x15 with 35 spaces filled will not use this AI, it will use the DjikstraAI)
-            else if(boardView.length * boardView[0].length > 196){
-                move = mctsAI(boardView, freeSpaces, freeSpacesMap);
+            else if(boardView.getSizeX() * boardView.getSizeY() > 196){
+                move = mctsAI(boardView, freeSpaces);
             }
 
             //There's nothing stopping us using the (better) djikstra AI, so let's use it.
             else{
-                move = djikstraAI(boardView, freeSpaces, freeSpacesMap);
+                move = djikstraAI(freeSpaces, playerBase, oppBase);
             }
         }
         return move;
@@ -202,10 +261,10 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      *
      * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
      */
-    private MoveInterface chooseMiddleAI(Piece[][] boardView){
+    private MoveInterface chooseMiddleAI(BoardSnapshot boardView){
         MoveInterface move = new Move();
         try{
-            move.setPosition(boardView.length / 2, boardView[0].length / 2);
+            move.setPosition(boardView.getSizeX() / 2, boardView.getSizeY() / 2);
         }
         catch(InvalidPositionException e){
             e.printStackTrace();
@@ -216,12 +275,14 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     /**
      * Mirror the move that was just made, as seen here http://mathworld.wolfram.com/GameofHex.html
      *
-     * @param newBoard The current state of the board
+     * @param snapshot The current state of the board
      *
      * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
      */
-    private MoveInterface mirrorAI(Piece[][] newBoard){
+    private MoveInterface mirrorAI(BoardSnapshot snapshot){
         MoveInterface move = new Move();
+        //The board is kept for the next move, so needs to be a copy
+        Piece[][] newBoard = snapshot.toBoardView();
 
         //It can be determined which side of the mirror line a location is on based on how (x+y) >= barrier evaluates.
         int barrier = Math.max(newBoard.length, newBoard[0].length) - 1;
@@ -311,17 +372,36 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     }
 
     /**
-     * Look at each possible move, two levels deep, rating each possible move using djikstra's algorithm. The advantages of this algorithm over the MCTS algorithm is that it
-     * assumes a competent opponent, in addition to utilising blocking and advanced strategies such as bridges.
+     * Build the graphs of the board and use the djikstra AI.
      *
      * @param boardView The current state of the board
      * @param freeSpaces The spaces on the board that are Piece.UNSET
-     * @param freeSpacesMap A map - for each free space, the spaces that would be free after placing a piece at that location
      *
      * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
      */
-    private MoveInterface djikstraAI(Piece[][] boardView, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap){
-        ArrayList<PotentialMove> moveOptions = djikstraCompute(boardView, freeSpaces, freeSpacesMap);
+    private MoveInterface djikstraAI(BoardSnapshot boardView, ArrayList<Coordinate> freeSpaces){
+        Piece otherColour;
+        if(colour == Piece.RED){
+            otherColour = Piece.BLUE;
+        }
+        else{
+            otherColour = Piece.RED;
+        }
+        return djikstraAI(freeSpaces, new GraphBase(boardView, colour), new GraphBase(boardView, otherColour));
+    }
+
+    /**
+     * Look at each possible move, up to maxSearchDepth levels deep, rating each possible move using djikstra's algorithm. The advantages of this algorithm over the MCTS algorithm is that it
+     * assumes a competent opponent, in addition to utilising blocking and advanced strategies such as bridges.
+     *
+     * @param freeSpaces The spaces on the board that are Piece.UNSET
+     * @param playerBase The graph of the current board for this player
+     * @param oppBase The graph of the current board for the opponent
+     *
+     * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
+     */
+    private MoveInterface djikstraAI(ArrayList<Coordinate> freeSpaces, GraphBase playerBase, GraphBase oppBase){
+        ArrayList<PotentialMove> moveOptions = djikstraCompute(freeSpaces, playerBase, oppBase);
         ArrayList<PotentialMove> bestMoves = new ArrayList<PotentialMove>();
         PotentialMove bestMove = null;
         Double bestValue = null;
@@ -375,65 +455,24 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     }
 
     /**
-     * Uses DjikstraRunnables to perform the computations for the DjikstraAI and return a list of potential moves and their values.
+     * Uses a DjikstraRunnable to perform the computations for the DjikstraAI and return a list of potential moves and their values.
      *
-     * @param boardView The current state of the board
      * @param freeSpaces The spaces on the board that are Piece.UNSET
-     * @param freeSpacesMap A map - for each free space, the spaces that would be free after placing a piece at that location
+     * @param playerBase The graph of the current board for this player, shared by every worker thread
+     * @param oppBase The graph of the current board for the opponent, shared by every worker thread
      *
      * @return A list of PotentialMove objects each storing a pair of moves and the value of that move to be computed by the mctsAI method.
      */
-    private ArrayList<PotentialMove> djikstraCompute(Piece[][] boardView, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap){
-        int procs = Runtime.getRuntime().availableProcessors();
-        LinkedList<DjikstraRunnable> runnables = new LinkedList<>();
-        ArrayList<ArrayList<Coordinate>> sublists = new ArrayList<ArrayList<Coordinate>>();
-
-        for(int i = 0; i < procs; i++){
-            sublists.add(new ArrayList<Coordinate>());
-        }
-
-        int runnableNo = 0;
-        //Run through the spaces available for a first move, splitting them evenly between threads
-        for(Coordinate coords : freeSpaces){
-            sublists.get(runnableNo).add(coords);
-            runnableNo = (runnableNo + 1) % procs;
-        }
-
-        try{
-            for(int i = 0; i < procs; i++){
-                //Start the calculations
-                DjikstraRunnable runnable = new DjikstraRunnable(boardView, colour, sublists.get(i), freeSpacesMap);
-                runnables.add(runnable);
-                Thread thread = new Thread(runnable);
-                thread.start();
-            }
-        }
-        catch(InvalidColourException e){
-            e.printStackTrace();
-        }
-
-        boolean done = false;
-        while(!done){
-            //check 10 times per second whether the threads are done, stop when all are.
-            try{
-                Thread.sleep(100);
-            }
-            catch(InterruptedException e){
-                e.printStackTrace();
-            }
-            done = true;
-            int i = 0;
-            while(done && i < runnables.size()){
-                done = runnables.get(i).isDone();
-                i++;
-            }
-        }
-        //Combine all the results
-        ArrayList<PotentialMove> moves = new ArrayList<PotentialMove>();
-        for(DjikstraRunnable runnable : runnables){
-            moves.addAll(runnable.getMoveOptions());
-        }
-        return moves;
+    private ArrayList<PotentialMove> djikstraCompute(ArrayList<Coordinate> freeSpaces, GraphBase playerBase, GraphBase oppBase){
+        long deadline = System.nanoTime() + (long) (timeGoal * 1e9);
+        if(table == null){
+            table = new TranspositionTable(TranspositionTable.DEFAULT_SIZE);
+        }
+        //The runnable splits the first moves into fork/join tasks itself, so the threads share the work out between them as they go
+        DjikstraRunnable runnable = new DjikstraRunnable(playerBase, oppBase, freeSpaces, freeSpaces, maxSearchDepth, deadline, table);
+        runnable.run();
+        workerStats = runnable.getWorkerStats();
+        return runnable.getMoveOptions(runnable.getCompletedDepth());
     }
 
     /**
@@ -445,18 +484,17 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
      *
      * @param boardView The current state of the board
      * @param freeSpaces The spaces on the board that are Piece.UNSET
-     * @param freeSpacesMap A map - for each free space, the spaces that would be free after placing a piece at that location
      *
      * @return A Move object representing the desired place to place a piece or a Move object representing a concession if the AI determines that the game is unwinnable.
      */
-    private MoveInterface mctsAI(Piece[][] boardView, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap){
+    private MoveInterface mctsAI(BoardSnapshot boardView, ArrayList<Coordinate> freeSpaces){
         //get the winRate tables
-        Double[][] winRate = mctsCompute(boardView, freeSpaces, freeSpacesMap);
+        Double[][] winRate = mctsCompute(boardView, freeSpaces);
         //get the best move
         double bestWinRate = 0;
         Coordinate bestMove = null;
-        for(int k = 0; k < boardView.length; k++){
-            for(int l = 0; l < boardView[0].length; l++){
+        for(int k = 0; k < boardView.getSizeX(); k++){
+            for(int l = 0; l < boardView.getSizeY(); l++){
                 if(winRate[k][l] > bestWinRate){
                     bestWinRate = winRate[k][l];
                     bestMove = new Coordinate(k, l);
@@ -482,45 +520,59 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
     }
 
     /**
-     * Use MCTSRunnables to compute the random games, interrupt them when done and add their win rate arrays together.
+     * Use MCTSRunnables to compute the random games, stop them when the timeGoal is up and add their win rate arrays together.
      *
      * @param boardView The current state of the board
      * @param freeSpaces The spaces on the board that are Piece.UNSET
-     * @param freeSpacesMap A map - for each free space, the spaces that would be free after placing a piece at that location
      *
      * @return A 2D array of Doubles representing the
      */
-    private Double[][] mctsCompute(Piece[][] boardView, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap){
+    private Double[][] mctsCompute(BoardSnapshot boardView, ArrayList<Coordinate> freeSpaces){
         int procs = Runtime.getRuntime().availableProcessors();
         LinkedList<MCTSRunnable> runnables = new LinkedList<>();
-        LinkedList<Thread> threads = new LinkedList<>();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[procs];
         for(int k = 0; k < procs; k++){
-            //Create a thread for each processor thread and start calculating the data
-            MCTSRunnable runnable = new MCTSRunnable(boardView, colour, freeSpacesMap, freeSpaces);
-            Thread thread = new Thread(runnable);
-            thread.start();
-            threads.add(thread);
+            //Create a task for each processor thread and start calculating the data on the shared executor
+            MCTSRunnable runnable = new MCTSRunnable(boardView, colour, freeSpaces);
+            futures[k] = CompletableFuture.runAsync(runnable, SearchExecutor.get());
             runnables.add(runnable);
         }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures);
         try{
-            //Sleep until the timeGoal has passed
-            Thread.sleep((long) (timeGoal * 1000));
+            //Wait until the timeGoal has passed - the runnables only finish early if something goes wrong
+            all.get((long) (timeGoal * 1000), TimeUnit.MILLISECONDS);
+        }
+        catch(TimeoutException e){
+            //The usual way out - time is up
+        }
+        catch(ExecutionException e){
+            //A runnable failed early - the failure is reported when the runnables are collected below
         }
         catch(InterruptedException e){
             e.printStackTrace();
         }
 
-        for(Thread thread : threads){
-            thread.interrupt();
+        //Stop the runnables, and wait for them to finish so that their results are complete and visible
+        for(MCTSRunnable runnable : runnables){
+            runnable.stop();
+        }
+        for(CompletableFuture<?> future : futures){
+            try{
+                future.join();
+            }
+            catch(CompletionException e){
+                //The games a failed runnable finished before failing are still counted, just as a runnable stopped by the timeGoal counts its games
+                e.getCause().printStackTrace();
+            }
         }
 
         //Combine the data
-        int[][] plays = new int[boardView.length][boardView[0].length];
-        int[][] wins = new int[boardView.length][boardView[0].length];
+        int[][] plays = new int[boardView.getSizeX()][boardView.getSizeY()];
+        int[][] wins = new int[boardView.getSizeX()][boardView.getSizeY()];
 
         for(MCTSRunnable runnable : runnables){
-            for(int k = 0; k < boardView.length; k++){
-                for(int l = 0; l < boardView[0].length; l++){
+            for(int k = 0; k < boardView.getSizeX(); k++){
+                for(int l = 0; l < boardView.getSizeY(); l++){
                     plays[k][l] += runnable.getPlays(k, l);
                     wins[k][l] += runnable.getWins(k, l);
                 }
@@ -528,7 +580,7 @@ public class ComputerPlayer_xvhn44 implements PlayerInterface{
         }
 
         //Convert plays and wins to winrate
-        Double[][] winRate = new Double[boardView.length][boardView[0].length];
+        Double[][] winRate = new Double[boardView.getSizeX()][boardView.getSizeY()];
         for(int i = 0; i < plays.length; i++){
             for(int j = 0; j < plays[0].length; j++){
                 winRate[i][j] = (double) (wins[i][j]) / (double) (plays[i][j]);
@@ -0,0 +1,84 @@
+/**
+ * A disjoint-set (union-find) structure over the integers 0 to size - 1. Uses union by rank and path halving, so that finding the set of an element is effectively constant
+ * time. Used by the board to keep track of which hexes are connected without searching the board each time.
+ *
+ * @author Steven Lowes
+ */
+public class DisjointSet{
+    /**
+     * The parent of each element. An element that is its own parent is the representative of its set.
+     */
+    private final int[] parent;
+
+    /**
+     * An upper bound on the height of the tree below each representative, used to keep the trees shallow when joining sets.
+     */
+    private final int[] rank;
+
+    /**
+     * Create a new disjoint set where every element is in a set of its own.
+     *
+     * @param size The number of elements
+     */
+    public DisjointSet(int size){
+        parent = new int[size];
+        rank = new int[size];
+        for(int i = 0; i < size; i++){
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Find the representative of the set containing an element. Every other node on the way up is pointed at its grandparent to shorten later searches.
+     *
+     * @param element The element to look up
+     *
+     * @return The representative of the set containing element
+     */
+    public int find(int element){
+        while(parent[element] != element){
+            parent[element] = parent[parent[element]];
+            element = parent[element];
+        }
+        return element;
+    }
+
+    /**
+     * Join the sets containing two elements.
+     *
+     * @param element1 An element of the first set
+     * @param element2 An element of the second set
+     *
+     * @return boolean indicating whether the sets were joined - false if they were already the same set
+     */
+    public boolean union(int element1, int element2){
+        int root1 = find(element1);
+        int root2 = find(element2);
+        if(root1 == root2){
+            return false;
+        }
+
+        //Hang the shallower tree beneath the deeper one
+        if(rank[root1] < rank[root2]){
+            parent[root1] = root2;
+        }
+        else if(rank[root1] > rank[root2]){
+            parent[root2] = root1;
+        }
+        else{
+            parent[root2] = root1;
+            rank[root1]++;
+        }
+        return true;
+    }
+
+    /**
+     * @param element1 The first element
+     * @param element2 The second element
+     *
+     * @return boolean indicating whether the two elements are in the same set
+     */
+    public boolean connected(int element1, int element2){
+        return find(element1) == find(element2);
+    }
+}
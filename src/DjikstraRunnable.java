@@ -1,66 +1,136 @@
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * A runnable which calculates the best moves that can be made and stores them, ready to provide back to the ComputerPlayer that created the object. Implemented to allow for
- * multi-threading in the Djikstra AI.
+ * A runnable which calculates the best moves that can be made and stores them, ready to provide back to the ComputerPlayer that created the object. The first moves are split into
+ * a fork/join task each on SearchExecutor's pool, so a worker that finishes its moves early steals the ones left rather than sitting idle while the slowest moves finish. Each
+ * worker thread keeps its own overlays of the graphs, reused by every task it runs of this runnable and dropped once the run is over.
  */
 public class DjikstraRunnable implements Runnable{
     /**
-     * A piece view of the current board state
+     * The graph of the board for the AI player, shared with the other runnables
      */
-    private final Piece[][] boardView;
+    private final GraphBase playerBase;
 
     /**
-     * The colour of this player. It is assumed that it is the passed colour's turn.
+     * The graph of the board for the opponent, shared with the other runnables
      */
-    private final Piece colour;
+    private final GraphBase opponentBase;
 
     /**
-     * The moves that can be made
+     * The first moves to search
      */
     private final ArrayList<Coordinate> freeSpaces;
 
     /**
-     * If I make this move (Coordinate), which moves could the opponent make (ArrayList of Coordinate)
+     * Every free space on the board. The opponent can reply to a move with any of these other than the move itself.
      */
-    private final HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap;
+    private final ArrayList<Coordinate> allFreeSpaces;
 
     /**
-     * Is the runnable finished calculating
+     * The deepest search to run, in moves including the first move.
      */
-    private boolean done = false;
+    private final int maxSearchDepth;
 
     /**
-     * Stores the moves available and the value of each
+     * The System.nanoTime after which no deeper search is started, and the one running is abandoned.
      */
-    private ArrayList<PotentialMove> moveOptions;
+    private final long deadline;
+
+    /**
+     * The table of positions already evaluated, shared with the other threads, or null.
+     */
+    private final TranspositionTable table;
+
+    /**
+     * Is the runnable finished calculating. Volatile, as it is read from other threads.
+     */
+    private volatile boolean done = false;
+
+    /**
+     * The moves available and the value of each, for each depth that was searched to completion - the results of depth d are at index d - 1.
+     */
+    private ArrayList<ArrayList<PotentialMove>> completedOptions;
+
+    /**
+     * The worker of each thread that has run a task, while the searches are running. Cleared at the end of run, so the pool's threads don't keep the graphs alive.
+     */
+    private final ConcurrentHashMap<Thread, SearchWorker> workers = new ConcurrentHashMap<Thread, SearchWorker>();
+
+    /**
+     * How busy each worker was, filled in at the end of run.
+     */
+    private ArrayList<WorkerStats> workerStats;
+
+    /**
+     * The depth being searched.
+     */
+    private int searchDepth;
+
+    /**
+     * The first moves of the search being run, in the order they are split between the tasks.
+     */
+    private ArrayList<Coordinate> searchOrder;
+
+    /**
+     * The result of each first move in searchOrder, filled in by the tasks.
+     */
+    private PotentialMove[] searchResults;
+
+    /**
+     * Whether a task of the search being run passed the deadline. Volatile, so the tasks not yet started see it and don't bother.
+     */
+    private volatile boolean searchAborted;
+
+    /**
+     * The time spent running searches, in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Initialise the variables passed as parameters.
+     *
+     * @param playerBase The graph of the current board for the AI player, whose turn it is
+     * @param opponentBase The graph of the current board for the opponent
+     * @param freeSpaces The first moves to calculate the value of
+     * @param allFreeSpaces Every free space on the board, from which the second moves are taken
+     * @param maxSearchDepth The deepest search to run, in moves including the first move - 2 looks at every reply to each first move
+     * @param deadline The System.nanoTime by which to stop. Depth 1 is always searched to completion.
+     *
+     * @throws NullPointerException playerBase, opponentBase, freeSpaces, or allFreeSpaces are null
+     */
+    public DjikstraRunnable(GraphBase playerBase, GraphBase opponentBase, ArrayList<Coordinate> freeSpaces, ArrayList<Coordinate> allFreeSpaces, int maxSearchDepth,
+                            long deadline) throws NullPointerException{
+        this(playerBase, opponentBase, freeSpaces, allFreeSpaces, maxSearchDepth, deadline, null);
+    }
 
     /**
      * Initialise the variables passed as parameters.
      *
-     * @param boardView The current state of the board
-     * @param colour The colour of the AI player
-     * @param freeSpaces The moves that are available to be made - does not represent all free spaces on the board, only those that the runnable is allocated to calculate value
-     * for.
-     * @param freeSpacesMap The moves that are available for the second move for each first move
+     * @param playerBase The graph of the current board for the AI player, whose turn it is
+     * @param opponentBase The graph of the current board for the opponent
+     * @param freeSpaces The first moves to calculate the value of
+     * @param allFreeSpaces Every free space on the board, from which the second moves are taken
+     * @param maxSearchDepth The deepest search to run, in moves including the first move - 2 looks at every reply to each first move
+     * @param deadline The System.nanoTime by which to stop. Depth 1 is always searched to completion.
+     * @param table The table of positions already evaluated, to share between the threads, or null to evaluate every position
      *
-     * @throws NullPointerException boardView, freeSpaces, or freeSpacesMap are null
-     * @throws InvalidColourException colour parameter is not Piece.RED or Piece.BLUE
+     * @throws NullPointerException playerBase, opponentBase, freeSpaces, or allFreeSpaces are null
      */
-    public DjikstraRunnable(Piece[][] boardView, Piece colour, ArrayList<Coordinate> freeSpaces, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap) throws
-                                                                                                                                                           NullPointerException,
-                                                                                                                                                           InvalidColourException{
-        if(boardView == null || freeSpaces == null || freeSpacesMap == null){
+    public DjikstraRunnable(GraphBase playerBase, GraphBase opponentBase, ArrayList<Coordinate> freeSpaces, ArrayList<Coordinate> allFreeSpaces, int maxSearchDepth,
+                            long deadline, TranspositionTable table) throws NullPointerException{
+        if(playerBase == null || opponentBase == null || freeSpaces == null || allFreeSpaces == null){
             throw new NullPointerException();
         }
-        if(colour != Piece.RED && colour != Piece.BLUE){
-            throw new InvalidColourException();
-        }
-        this.boardView = boardView;
-        this.colour = colour;
+        this.playerBase = playerBase;
+        this.opponentBase = opponentBase;
         this.freeSpaces = freeSpaces;
-        this.freeSpacesMap = freeSpacesMap;
+        this.allFreeSpaces = allFreeSpaces;
+        this.maxSearchDepth = maxSearchDepth;
+        this.deadline = deadline;
+        this.table = table;
     }
 
     /**
@@ -73,13 +143,27 @@ public class DjikstraRunnable implements Runnable{
     }
 
     /**
-     * Return the values for each potential move, as PotentialMove objects. If not done calculating, return null.
+     * @return The deepest search that was completed, 0 if not done calculating
+     */
+    public int getCompletedDepth(){
+        if(done){
+            return completedOptions.size();
+        }
+        else{
+            return 0;
+        }
+    }
+
+    /**
+     * Return the values for each potential move from a search that was completed, as PotentialMove objects. If not done calculating, return null.
+     *
+     * @param depth The depth of the search, from 1 to getCompletedDepth()
      *
      * @return Null if not done calculating, else a list of PotentialMove options
      */
-    public ArrayList<PotentialMove> getMoveOptions(){
+    public ArrayList<PotentialMove> getMoveOptions(int depth){
         if(done){
-            return moveOptions;
+            return completedOptions.get(depth - 1);
         }
         else{
             return null;
@@ -87,97 +171,228 @@ public class DjikstraRunnable implements Runnable{
     }
 
     /**
-     * Calculate the values of each move, 2 layers deep. Assume the both players make the best move for themselves.
+     * Return how busy each worker thread was over the searches, so that the split of the work can be checked. If not done calculating, return null.
+     *
+     * @return Null if not done calculating, else the stats of each worker that ran a task
      */
-    public void run(){
-        //Generate the initial graphs for the board stored.
-        Graph playerGraph = new Graph();
-        playerGraph.populateGraph(boardView, colour);
-        Piece otherColour;
-
-        if(colour == Piece.RED){
-            otherColour = Piece.BLUE;
+    public ArrayList<WorkerStats> getWorkerStats(){
+        if(done){
+            return workerStats;
         }
         else{
-            otherColour = Piece.RED;
-        }
-        Graph opponentGraph = new Graph();
-        opponentGraph.populateGraph(boardView, otherColour);
-
-        //high values are better for player, low values better for opponent
-        moveOptions = new ArrayList<PotentialMove>();
-
-        for(Coordinate coords : freeSpaces){
-            //For each first move
-            ArrayList<Coordinate> newFreeSpaces = freeSpacesMap.get(coords);
-            ArrayList<PotentialMove> options = new ArrayList<PotentialMove>();
-
-            for(Coordinate coords2 : newFreeSpaces){
-                //For each second move for that first move
-                HashMap<Coordinate, Node> nodesMap = playerGraph.getNodesMap();
-                //Store the data about the current state of the nodes
-                Node prevNode1 = nodesMap.get(coords);
-                Node prevNode2 = nodesMap.get(coords2);
-                Double node1PrevWeight = null;
-                Double node2PrevWeight = null;
-                try{
-                    node1PrevWeight = prevNode1.getWeight();
-                    node2PrevWeight = prevNode2.getWeight();
-                }
-                catch(NodeWeightNotSetException e){
-                    System.out.println("Doing djikstras on a graph that hasn't been initialised properly - node " + "weight == null");
-                    e.printStackTrace();
-                }
-
-                NodeType node1PrevType = prevNode1.getType();
-                NodeType node2PrevType = prevNode2.getType();
-
-                try{
-                    //Make the moves
-                    playerGraph.changeNode(coords, NodeType.PLAYER, Graph.PLAYER_WEIGHT);
-                    opponentGraph.changeNode(coords, NodeType.OPPONENT, null);
-                    playerGraph.changeNode(coords2, NodeType.OPPONENT, null);
-                    opponentGraph.changeNode(coords2, NodeType.PLAYER, Graph.PLAYER_WEIGHT);
-
-                    //Have a look at the new distances to traverse the graph for each player
-                    Double playerDistance = playerGraph.getDistance();
-                    Double opponentDistance = opponentGraph.getDistance();
-
-                    //Store the move
-                    options.add(new PotentialMove(coords, coords2, playerDistance, opponentDistance));
-
-                    //Change the nodes back to how they were
-                    playerGraph.changeNode(coords, node1PrevType, node1PrevWeight);
-                    opponentGraph.changeNode(coords, node1PrevType, node1PrevWeight);
-                    playerGraph.changeNode(coords2, node2PrevType, node2PrevWeight);
-                    opponentGraph.changeNode(coords2, node2PrevType, node2PrevWeight);
-                    playerGraph.reset();
-                    opponentGraph.reset();
-                }
-                catch(InvalidPositionException e){
-                    e.printStackTrace();
-                }
+            return null;
+        }
+    }
+
+    /**
+     * Calculate the values of each move with iterative deepening: search 1 move deep, then 2, and so on up to maxSearchDepth, until the deadline passes. Each search uses
+     * alpha-beta pruning, and starts with the first moves that were best in the search before. Assume the both players make the best move for themselves. Blocks until done -
+     * the searching itself is done by the tasks on SearchExecutor's pool.
+     */
+    public void run(){
+        ForkJoinPool pool = SearchExecutor.getPool();
+        completedOptions = new ArrayList<ArrayList<PotentialMove>>();
+        //The most promising first moves are searched first, so the rest are cut off sooner
+        AlphaBetaSearcher orderer = new AlphaBetaSearcher(playerBase.createOverlay(), opponentBase.createOverlay(), allFreeSpaces, 1);
+        ArrayList<Coordinate> order = orderer.orderMoves(freeSpaces);
+
+        for(int depth = 1; depth <= maxSearchDepth; depth++){
+            searchDepth = depth;
+            searchOrder = order;
+            searchResults = new PotentialMove[order.size()];
+            searchAborted = false;
+
+            long start = System.nanoTime();
+            if(!order.isEmpty()){
+                pool.invoke(new MoveTask(0, order.size()));
             }
+            elapsedNanos += System.nanoTime() - start;
 
-            //assume the opponent plays optimally
-            PotentialMove bestMove = null;
-            Double bestValue = null;
-            for(PotentialMove move : options){
-                //low values best for AI
-                if(bestValue == null || move.getValue() <= bestValue){
-                    if(bestValue != null && move.getValue().equals(bestValue)){
-                        bestMove.addAllSecondMove(move.getSecondMove());
-                    }
-                    else{
-                        bestMove = move;
-                        bestValue = move.getValue();
-                        //better move
-                    }
-                }
+            if(searchAborted){
+                //Out of time - keep the results of the last search that finished
+                break;
             }
-            moveOptions.add(bestMove);
+            //high values are better for player, low values better for opponent
+            ArrayList<PotentialMove> moveOptions = new ArrayList<PotentialMove>(searchResults.length);
+            for(PotentialMove move : searchResults){
+                moveOptions.add(move);
+            }
+            completedOptions.add(moveOptions);
+            order = orderByValue(moveOptions);
+        }
+
+        //Keep the stats, and let go of the workers' graphs
+        workerStats = new ArrayList<WorkerStats>();
+        for(SearchWorker worker : workers.values()){
+            workerStats.add(new WorkerStats(worker.name, worker.tasks, worker.busyNanos, elapsedNanos));
         }
+        workers.clear();
         done = true;
     }
 
+    /**
+     * Get the worker of the current thread, creating it the first time the thread runs a task.
+     *
+     * @return The worker
+     */
+    private SearchWorker getWorker(){
+        Thread thread = Thread.currentThread();
+        SearchWorker worker = workers.get(thread);
+        if(worker == null){
+            //Only this thread ever adds its own worker
+            worker = new SearchWorker(thread.getName(), playerBase.createOverlay(), opponentBase.createOverlay());
+            workers.put(thread, worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Find the value of a first move with the current thread's worker, using a searcher for the search being run.
+     *
+     * @param index The position of the move in searchOrder
+     */
+    private void searchMove(int index){
+        long start = System.nanoTime();
+        SearchWorker worker = getWorker();
+        if(worker.searcher == null || worker.depth != searchDepth){
+            //Each searcher remembers the best first move it has searched, so moves searched after it on this thread are cut off sooner
+            worker.depth = searchDepth;
+            worker.searcher = new AlphaBetaSearcher(worker.playerGraph, worker.opponentGraph, allFreeSpaces, searchDepth,
+                                                    searchDepth == 1 ? AlphaBetaSearcher.NO_DEADLINE : deadline, table, playerBase.getHash());
+        }
+        PotentialMove move = worker.searcher.searchMove(searchOrder.get(index));
+        if(worker.searcher.isAborted()){
+            searchAborted = true;
+        }
+        else{
+            searchResults[index] = move;
+        }
+        worker.tasks++;
+        worker.busyNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Order the first moves for the next search, best value first. Moves with equal values keep their order.
+     *
+     * @param moveOptions The results of a search
+     *
+     * @return The first moves in order
+     */
+    private ArrayList<Coordinate> orderByValue(ArrayList<PotentialMove> moveOptions){
+        ArrayList<PotentialMove> sorted = new ArrayList<PotentialMove>(moveOptions);
+        for(int i = 1; i < sorted.size(); i++){
+            PotentialMove move = sorted.get(i);
+            int j = i - 1;
+            while(j >= 0 && sorted.get(j).getValue() < move.getValue()){
+                sorted.set(j + 1, sorted.get(j));
+                j--;
+            }
+            sorted.set(j + 1, move);
+        }
+        ArrayList<Coordinate> order = new ArrayList<Coordinate>(sorted.size());
+        for(PotentialMove move : sorted){
+            order.add(move.getFirstMove());
+        }
+        return order;
+    }
+
+    /**
+     * The graphs and searcher of one worker thread, and how busy it has been. Static, so it holds nothing of the runnable.
+     */
+    private static class SearchWorker{
+        /**
+         * The name of the thread.
+         */
+        private final String name;
+
+        /**
+         * The thread's own view of the shared graphs. Each move only changes a few edges, so the searcher repairs the shortest paths rather than searching again.
+         */
+        private final Graph playerGraph;
+
+        /**
+         * The opponent's graph, as playerGraph.
+         */
+        private final Graph opponentGraph;
+
+        /**
+         * The searcher for depth, or null if the thread hasn't run a task yet.
+         */
+        private AlphaBetaSearcher searcher;
+
+        /**
+         * The depth searcher was made for.
+         */
+        private int depth;
+
+        /**
+         * The number of tasks run.
+         */
+        private int tasks;
+
+        /**
+         * The time spent running tasks, in nanoseconds.
+         */
+        private long busyNanos;
+
+        /**
+         * Initialise the variables passed as parameters.
+         *
+         * @param name The name of the thread
+         * @param playerGraph The thread's overlay of the AI player's graph
+         * @param opponentGraph The thread's overlay of the opponent's graph
+         */
+        private SearchWorker(String name, Graph playerGraph, Graph opponentGraph){
+            this.name = name;
+            this.playerGraph = playerGraph;
+            this.opponentGraph = opponentGraph;
+        }
+    }
+
+    /**
+     * Searches a range of searchOrder, split in half until each task has one first move so that idle workers can steal them.
+     */
+    private class MoveTask extends RecursiveAction{
+        /**
+         * Tasks are never serialized, but RecursiveAction is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first position in searchOrder to search.
+         */
+        private final int from;
+
+        /**
+         * The position after the last one to search.
+         */
+        private final int to;
+
+        /**
+         * Initialise the variables passed as parameters.
+         *
+         * @param from The first position in searchOrder to search
+         * @param to The position after the last one to search
+         */
+        private MoveTask(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Search the move, or split the range between two new tasks.
+         */
+        protected void compute(){
+            if(searchAborted){
+                return;
+            }
+            if(to - from == 1){
+                searchMove(from);
+            }
+            else{
+                int middle = (from + to) >>> 1;
+                invokeAll(new MoveTask(from, middle), new MoveTask(middle, to));
+            }
+        }
+    }
 }
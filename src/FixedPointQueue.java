@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+/**
+ * The queue of nodes waiting to be visited by Graph.getFixedDistance. The edges of a graph only have a handful of different fixed point weights, so there is one first-in
+ * first-out queue for each weight. Nodes are visited in order of distance, so the nodes reached across edges of one weight are added in order of distance too, and the closest
+ * queued node is always at the front of one of the queues. Adding and removing a node is therefore constant time for a fixed number of weights, with no heap and no boxing.
+ * <p>
+ * A node is queued again whenever its distance drops, rather than being moved. Entries for nodes that have since been visited or reached more cheaply are skipped when polled.
+ *
+ * @author Steven Lowes
+ */
+public class FixedPointQueue{
+    /**
+     * The edge weight that each queue is for.
+     */
+    private int[] weights;
+
+    /**
+     * The queued nodes, for each weight.
+     */
+    private int[][] nodes;
+
+    /**
+     * The distance each node had when it was queued, for each weight.
+     */
+    private int[][] distances;
+
+    /**
+     * The position of the front of each queue.
+     */
+    private int[] heads;
+
+    /**
+     * The position after the back of each queue.
+     */
+    private int[] tails;
+
+    /**
+     * The number of weights that have a queue.
+     */
+    private int queueCount;
+
+    /**
+     * The distance of the node most recently returned by poll.
+     */
+    private int polledDistance;
+
+    /**
+     * The current distance to each node, shared with the graph, to spot entries that are out of date.
+     */
+    private final int[] currentDistances;
+
+    /**
+     * The epoch in which each node was last visited, shared with the graph.
+     */
+    private final int[] visitedEpochs;
+
+    /**
+     * The graph's current epoch. A node has been visited if its stamp in visitedEpochs is this.
+     */
+    private int epoch;
+
+    /**
+     * Create an empty queue.
+     *
+     * @param currentDistances The array the graph keeps the current distance to each node in
+     * @param visitedEpochs The array the graph stamps visited nodes with the current epoch in
+     */
+    public FixedPointQueue(int[] currentDistances, int[] visitedEpochs){
+        this.currentDistances = currentDistances;
+        this.visitedEpochs = visitedEpochs;
+        weights = new int[8];
+        nodes = new int[8][];
+        distances = new int[8][];
+        heads = new int[8];
+        tails = new int[8];
+    }
+
+    /**
+     * Empty every queue, keeping the arrays for reuse, ready for a search in a new epoch.
+     *
+     * @param epoch The graph's current epoch
+     */
+    public void clear(int epoch){
+        this.epoch = epoch;
+        for(int i = 0; i < queueCount; i++){
+            heads[i] = 0;
+            tails[i] = 0;
+        }
+    }
+
+    /**
+     * Queue a node that has been reached across an edge.
+     *
+     * @param node The node reached
+     * @param distance The fixed point distance to the node
+     * @param weight The fixed point weight of the edge it was reached across
+     */
+    public void add(int node, int distance, int weight){
+        int queue = 0;
+        while(queue < queueCount && weights[queue] != weight){
+            queue++;
+        }
+        if(queue == queueCount){
+            //First edge with this weight - make a new queue for it
+            if(queueCount == weights.length){
+                int length = queueCount * 2;
+                weights = Arrays.copyOf(weights, length);
+                nodes = Arrays.copyOf(nodes, length);
+                distances = Arrays.copyOf(distances, length);
+                heads = Arrays.copyOf(heads, length);
+                tails = Arrays.copyOf(tails, length);
+            }
+            weights[queue] = weight;
+            nodes[queue] = new int[16];
+            distances[queue] = new int[16];
+            queueCount++;
+        }
+        if(tails[queue] == nodes[queue].length){
+            nodes[queue] = Arrays.copyOf(nodes[queue], tails[queue] * 2);
+            distances[queue] = Arrays.copyOf(distances[queue], tails[queue] * 2);
+        }
+        nodes[queue][tails[queue]] = node;
+        distances[queue][tails[queue]] = distance;
+        tails[queue]++;
+    }
+
+    /**
+     * Remove and return the closest node that hasn't been visited. Its distance is available from getPolledDistance.
+     *
+     * @return The closest unvisited node, or -1 if there are none queued
+     */
+    public int poll(){
+        int best = -1;
+        int bestDistance = Graph.NO_PATH;
+        for(int i = 0; i < queueCount; i++){
+            //Skip entries that are out of date
+            while(heads[i] < tails[i] && (visitedEpochs[nodes[i][heads[i]]] == epoch || distances[i][heads[i]] > currentDistances[nodes[i][heads[i]]])){
+                heads[i]++;
+            }
+            if(heads[i] < tails[i] && distances[i][heads[i]] < bestDistance){
+                best = i;
+                bestDistance = distances[i][heads[i]];
+            }
+        }
+        if(best == -1){
+            return -1;
+        }
+        int node = nodes[best][heads[best]];
+        heads[best]++;
+        polledDistance = bestDistance;
+        return node;
+    }
+
+    /**
+     * @return The fixed point distance of the node most recently returned by poll
+     */
+    public int getPolledDistance(){
+        return polledDistance;
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Random;
+
+/**
+ * The set of free hexes on a board, kept as a dense array of hex numbers with the position of each hex in the array. Removing a hex, checking whether a hex is free and picking a
+ * free hex at random are all constant time, and the free hexes can be looped over by position without creating an iterator.
+ * <p>
+ * A hex is removed by swapping the last free hex into its place. The removed hexes are kept after the free ones, most recent first, so the most recent removal can be put back
+ * with restore.
+ *
+ * @author Steven Lowes
+ */
+public class FreeCellSet{
+    /**
+     * The free hexes, in no particular order, followed by the removed hexes.
+     */
+    private final int[] cells;
+
+    /**
+     * The position of each hex in cells.
+     */
+    private final int[] index;
+
+    /**
+     * The number of free hexes - the first size entries of cells.
+     */
+    private int size;
+
+    /**
+     * Create a set where every hex is free.
+     *
+     * @param cellCount The number of hexes on the board
+     */
+    public FreeCellSet(int cellCount){
+        cells = new int[cellCount];
+        index = new int[cellCount];
+        for(int i = 0; i < cellCount; i++){
+            cells[i] = i;
+            index[i] = i;
+        }
+        size = cellCount;
+    }
+
+    /**
+     * @return The number of free hexes
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Get a free hex by position, for looping over the free hexes. Positions change as hexes are removed and restored.
+     *
+     * @param position The position, from 0 to size() - 1
+     *
+     * @return The free hex at that position
+     */
+    public int get(int position){
+        return cells[position];
+    }
+
+    /**
+     * @param cell The hex number
+     *
+     * @return boolean indicating whether the hex is free
+     */
+    public boolean contains(int cell){
+        return index[cell] < size;
+    }
+
+    /**
+     * Pick a free hex, each with equal probability.
+     *
+     * @param rand The random number generator to use
+     *
+     * @return A free hex
+     */
+    public int random(Random rand){
+        return cells[rand.nextInt(size)];
+    }
+
+    /**
+     * Remove a free hex from the set.
+     *
+     * @param cell The free hex to remove
+     *
+     * @return The position the hex was removed from, to pass to restore
+     */
+    public int remove(int cell){
+        int position = index[cell];
+        size--;
+        int last = cells[size];
+        cells[position] = last;
+        index[last] = position;
+        cells[size] = cell;
+        index[cell] = size;
+        return position;
+    }
+
+    /**
+     * Put back the most recently removed hex, where it was before it was removed.
+     *
+     * @param position The value returned by remove when the hex was removed
+     */
+    public void restore(int position){
+        int cell = cells[size];
+        int moved = cells[position];
+        cells[position] = cell;
+        index[cell] = position;
+        cells[size] = moved;
+        index[moved] = size;
+        size++;
+    }
+}
@@ -7,16 +7,16 @@ public class GameManager implements GameManagerInterface{
     /**
      * Board object storing game data.
      */
-    private final BoardInterface board;
+    private final SnapshotBoardInterface board;
 
     /**
-     * Player who is playing red.
+     * Player who is playing red. Players that only implement PlayerInterface are wrapped in a SnapshotPlayerAdapter.
      */
-    private PlayerInterface redPlayer;
+    private SnapshotPlayerInterface redPlayer;
     /**
-     * Player who is playing blue.
+     * Player who is playing blue. Players that only implement PlayerInterface are wrapped in a SnapshotPlayerAdapter.
      */
-    private PlayerInterface bluePlayer;
+    private SnapshotPlayerInterface bluePlayer;
     /**
      * The colour whose turn it is currently. Should be Piece.RED or Piece.BLUE never Piece.UNSET or null.
      */
@@ -26,7 +26,16 @@ public class GameManager implements GameManagerInterface{
      * Create a new GameManager with a GUI display of max height and width 500 pixels.
      */
     public GameManager(){
-        board = new Board();
+        this(new Board());
+    }
+
+    /**
+     * Create a new GameManager which plays on the board given, such as a BitBoard.
+     *
+     * @param board The board to play on, which must not have been sized yet
+     */
+    public GameManager(SnapshotBoardInterface board){
+        this.board = board;
     }
 
     /**
@@ -52,10 +61,10 @@ public class GameManager implements GameManagerInterface{
 
         try{
             if(colour == Piece.RED){
-                redPlayer = player;
+                redPlayer = SnapshotPlayerAdapter.adapt(player);
             }
             else if(colour == Piece.BLUE){
-                bluePlayer = player;
+                bluePlayer = SnapshotPlayerAdapter.adapt(player);
             }
             else{
                 throw new InvalidColourException();
@@ -103,11 +112,12 @@ public class GameManager implements GameManagerInterface{
                 MoveInterface move = null;
                 //Get the move from the player whose turn it is
                 try{
+                    //The snapshot is shared with the board rather than copied
                     if(turn == Piece.RED){
-                        move = redPlayer.makeMove(board.getBoardView());
+                        move = redPlayer.makeMove(board.getSnapshot());
                     }
                     else{
-                        move = bluePlayer.makeMove(board.getBoardView());
+                        move = bluePlayer.makeMove(board.getSnapshot());
                     }
                 }
                 catch(NoValidMovesException e){
@@ -118,27 +128,25 @@ public class GameManager implements GameManagerInterface{
                     System.out.println("Board not yet defined - define board before making move");
                     return false;
                 }
-                try{
-                    if(board.placePiece(turn, move)){
+                //Illegal moves are reported as a result, so a rejected move doesn't cost an exception
+                switch(board.tryPlace(turn, move)){
+                    case PLACED:
+                    case CONCEDED:
                         //Increment turn if move made with no issues
-                        if(!nextTurn()){
-                            return false;
-                        }
-                    }
-                }
-                catch(PositionAlreadyTakenException e){
-                    System.out.println("That position is already taken, try again");
-                }
-                catch(InvalidPositionException e){
-                    System.out.println("Invalid position choice, try again");
-                }
-                catch(InvalidColourException e){
-                    System.out.println("playGame of GameManager called before turn set");
-                    return false;
-                }
-                catch(NoBoardDefinedException e){
-                    System.out.println("playGame of GameManager called before board defined");
-                    return false;
+                        nextTurn();
+                        break;
+                    case POSITION_TAKEN:
+                        System.out.println("That position is already taken, try again");
+                        break;
+                    case INVALID_POSITION:
+                        System.out.println("Invalid position choice, try again");
+                        break;
+                    case WRONG_TURN:
+                        System.out.println("playGame of GameManager called before turn set");
+                        return false;
+                    case NO_BOARD:
+                        System.out.println("playGame of GameManager called before board defined");
+                        return false;
                 }
             }
             else{
@@ -184,21 +192,13 @@ public class GameManager implements GameManagerInterface{
 
     /**
      * Increment turn
-     *
-     * @return boolean indicating successful incrementation - false indicates turn is not Piece.BLUE or Piece.RED
-     *
-     * @throws InvalidColourException turn is not Piece.RED or Piece.BLUE
      */
-    private boolean nextTurn() throws InvalidColourException{
+    private void nextTurn(){
         if(turn == Piece.RED){
             turn = Piece.BLUE;
         }
-        else if(turn == Piece.BLUE){
-            turn = Piece.RED;
-        }
         else{
-            throw new InvalidColourException();
+            turn = Piece.RED;
         }
-        return true;
     }
 }
@@ -1,9 +1,22 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * A graph stores nodes such that the distance from a start to end node can be calculated.
+ * <p>
+ * The graph is held in compressed sparse row form. Every hex is a node numbered x * sizeY + y as in BoardGeometry, followed by the start node and the end node. The edges leaving
+ * node n are edgeTargets[edgeStart[n]] to edgeTargets[edgeStart[n + 1] - 1]. Every edge that could ever exist on a board of this size is listed once in each direction when the
+ * graph is populated, and only the weights change as nodes change: an edge that doesn't currently exist (because one end is NodeType.OPPONENT, or a bridge's carrier is taken)
+ * has weight NO_EDGE. Weights are stored in fixed point (multiplied by FIXED_POINT_SCALE) so that all distances are exact ints.
+ * <p>
+ * A chain of the player's stones costs nothing to move along, so every search treats it as a single super-node: when one node is taken from the queue, everything joined to it by
+ * zero weight edges - the rest of its chain, and the start or end node if the chain touches that edge - is settled at the same distance straight away, and the liberties of the
+ * whole chain are relaxed together. The chain never goes through the queue hop by hop.
+ * <p>
+ * Where only the distance across the board is wanted, getGoalDistance finds it with A*, aimed at the end node by a lower bound on the cost of the lines still to cross, and stops
+ * as soon as the end node's distance is known.
+ * <p>
+ * A graph can also be an overlay of a GraphBase, sharing the base's arrays until one of its nodes is changed and keeping its own distances, so that several threads can search
+ * variations of one board without each building the graph.
  *
  * @author Steven Lowes
  */
@@ -44,29 +57,69 @@ public class Graph{
     public static final double BLOCKED_WEIGHT_MODIFIER = +1000;
 
     /**
-     * For debugging and tuning - should blocking be used?
+     * The weights are all multiples of 1 / FIXED_POINT_SCALE, so multiplying by this gives the exact int weights used by getFixedDistance.
      */
-    private final boolean useBlocking = true;
+    public static final int FIXED_POINT_SCALE = 100;
 
     /**
-     * For debugging and tuning - should bridge edges be used?
+     * The fixed point distance returned when there is no way from the start node to the end node.
      */
-    private final boolean useBridges = true;
+    public static final int NO_PATH = Integer.MAX_VALUE;
+
+    /**
+     * The weight of an edge that doesn't currently exist.
+     */
+    private static final int NO_EDGE = -1;
+
+    /**
+     * The edge types, stored in edgeTypes by ordinal.
+     */
+    private static final EdgeType[] EDGE_TYPES = EdgeType.values();
 
     /**
-     * Map coordinates to nodes, such that nodes can be referenced by the coordinate they are at.
+     * A journal entry for a change to types.
      */
-    private HashMap<Coordinate, Node> nodesMap;
+    private static final int JOURNAL_TYPE = 0;
 
     /**
-     * The node that distance starts being calculated from
+     * A journal entry for a change to weights.
      */
-    private Node startNode;
+    private static final int JOURNAL_WEIGHT = 1;
 
     /**
-     * The node that distance finishes being calculated at
+     * A journal entry for a change to blocked.
      */
-    private Node endNode;
+    private static final int JOURNAL_BLOCKED = 2;
+
+    /**
+     * A journal entry for a change to edgeWeights.
+     */
+    private static final int JOURNAL_EDGE = 3;
+
+    /**
+     * The number of kinds of journal entry.
+     */
+    private static final int JOURNAL_KINDS = 4;
+
+    /**
+     * The node types, for undoing JOURNAL_TYPE entries.
+     */
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+
+    /**
+     * For debugging and tuning - should blocking be used?
+     */
+    private final boolean useBlocking = true;
+
+    /**
+     * For debugging and tuning - should bridge edges be used?
+     */
+    private final boolean useBridges = true;
+
+    /**
+     * The adjacency and bridge tables for the size of the board.
+     */
+    private BoardGeometry geometry;
 
     /**
      * The width of the board
@@ -78,90 +131,811 @@ public class Graph{
      */
     private int ySize;
 
-    /**
-     * The colour of the player who this graph represents.
-     */
-    private Piece colour;
+    /**
+     * The colour of the player who this graph represents.
+     */
+    private Piece colour;
+
+    /**
+     * The node that distance starts being calculated from, numbered after the hexes.
+     */
+    private int startNode;
+
+    /**
+     * The node that distance finishes being calculated at.
+     */
+    private int endNode;
+
+    /**
+     * The type of each node.
+     */
+    private NodeType[] types;
+
+    /**
+     * The fixed point weight of each node. Entering/exiting a node incurs a cost of half its weight. Unused for NodeType.OPPONENT nodes.
+     */
+    private int[] weights;
+
+    /**
+     * Whether each node is NodeType.UNSET with an adjacent NodeType.OPPONENT node.
+     */
+    private boolean[] blocked;
+
+    /**
+     * The edges leaving node n are at edgeStart[n] to edgeStart[n + 1] - 1.
+     */
+    private int[] edgeStart;
+
+    /**
+     * The node each edge goes to.
+     */
+    private int[] edgeTargets;
+
+    /**
+     * The ordinal of the EdgeType of each edge.
+     */
+    private byte[] edgeTypes;
+
+    /**
+     * For bridges, the two hexes adjacent to both ends (the carrier), at 2 * e and 2 * e + 1 for edge e. -1 for other edges.
+     */
+    private int[] edgeCarriers;
+
+    /**
+     * The position of the same edge in the other direction.
+     */
+    private int[] edgeReverse;
+
+    /**
+     * The current fixed point weight of each edge, or NO_EDGE if it doesn't currently exist.
+     */
+    private int[] edgeWeights;
+
+    /**
+     * The fixed point distance to each node from the startNode. Outside dynamic mode, only the distances of nodes reached in the current epoch mean anything - see distanceTo.
+     */
+    private int[] distances;
+
+    /**
+     * The epoch in which each node was last reached. A node whose stamp isn't the current epoch hasn't been reached by the current query.
+     */
+    private int[] reachedEpochs;
+
+    /**
+     * The epoch in which the shortest distance to each node was last found. A node is visited only if its stamp is the current epoch.
+     */
+    private int[] visitedEpochs;
+
+    /**
+     * The current epoch. reset moves on to the next epoch, which forgets every distance at once without touching the arrays.
+     */
+    private int epoch = 1;
+
+    /**
+     * The fixed point distance to each node found by getGoalDistance, kept apart from distances so that the shortest path tree of dynamic mode is left alone. Only the distances
+     * of nodes reached in the current epoch mean anything.
+     */
+    private int[] goalDistances;
+
+    /**
+     * For getGoalDistance, a lower bound on the distance to the endNode from a hex in each line - a row for Piece.RED, a column for Piece.BLUE - numbered from the startNode's side.
+     */
+    private int[] lineHeuristics;
+
+    /**
+     * The least it costs to cross each line through one of its hexes, or Integer.MAX_VALUE if every hex is the opponent's.
+     */
+    private int[] lineHexCosts;
+
+    /**
+     * Whether each line holds one of the player's pieces.
+     */
+    private boolean[] linePlayers;
+
+    /**
+     * Whether a hex in each line has changed since lineHexCosts and linePlayers were worked out for it.
+     */
+    private boolean[] linesChanged;
+
+    /**
+     * Scratch space for the least it costs to cross each line.
+     */
+    private int[] lineCosts;
+
+    /**
+     * For getGoalDistance, the lower bound on the distance from the startNode to the endNode.
+     */
+    private int startHeuristic;
+
+    /**
+     * Whether setDistance is saving the distances it overwrites, so that restoreTree can put the shortest path tree back.
+     */
+    private boolean saving;
+
+    /**
+     * The nodes whose distances have been saved, in the order they were saved. A node is saved once per epoch, stamped in visitedEpochs.
+     */
+    private int[] savedNodes;
+
+    /**
+     * The distance and parent edge each node in savedNodes had before it was first changed.
+     */
+    private int[] savedDistances, savedParents;
+
+    /**
+     * The number of entries in savedNodes.
+     */
+    private int savedCount;
+
+    /**
+     * The nodes waiting to be visited by djikstra's algorithm, closest first.
+     */
+    private IndexedMinHeap frontier;
+
+    /**
+     * Whether the distances to every node are kept up to date between changes, rather than recalculated from scratch for each query. See setDynamic.
+     * <p>
+     * Default: false
+     */
+    private boolean dynamic;
+
+    /**
+     * In dynamic mode, whether distances and parentEdges hold the shortest paths to every node as of the last query, apart from the changes listed in changedEdges.
+     */
+    private boolean treeValid;
+
+    /**
+     * In dynamic mode, the edge each node was reached by on its shortest path, or -1 for the startNode and unreachable nodes.
+     */
+    private int[] parentEdges;
+
+    /**
+     * In dynamic mode, the edges whose weight has changed since the last query.
+     */
+    private int[] changedEdges;
+
+    /**
+     * The number of entries in changedEdges.
+     */
+    private int changedCount;
+
+    /**
+     * The weight each edge in changedEdges had at the last query.
+     */
+    private int[] edgeOldWeights;
+
+    /**
+     * Whether each edge is in changedEdges.
+     */
+    private boolean[] edgeChanged;
+
+    /**
+     * Scratch space for the nodes settled along with the node just taken from the queue, still to have their edges relaxed - see the class description.
+     */
+    private int[] chain;
+
+    /**
+     * Scratch space for the nodes whose shortest path was lost when repairing the distances.
+     */
+    private int[] invalidated;
+
+    /**
+     * Whether each node is in invalidated.
+     */
+    private boolean[] nodeInvalidated;
+
+    /**
+     * The nodes waiting to be visited by getFixedDistance.
+     */
+    private FixedPointQueue fixedFrontier;
+
+    /**
+     * Whether types, weights, blocked and edgeWeights are still the arrays of the graph this is an overlay of, and so must be copied before they are changed.
+     */
+    private boolean sharedState;
+
+    /**
+     * The number of checkpoints that haven't been rolled back yet. Changes are recorded in the journal while this is above 0.
+     */
+    private int checkpoints;
+
+    /**
+     * The changes made since the first checkpoint, oldest first. Each entry is the index of the changed node or edge multiplied by JOURNAL_KINDS plus the kind of change.
+     */
+    private int[] journal = new int[0];
+
+    /**
+     * The value each change in the journal overwrote - an ordinal for JOURNAL_TYPE, 0 or 1 for JOURNAL_BLOCKED.
+     */
+    private int[] journalValues = new int[0];
+
+    /**
+     * The number of entries in journal.
+     */
+    private int journalSize;
+
+    /**
+     * Create an empty graph - call populateGraph before use.
+     */
+    public Graph(){
+    }
+
+    /**
+     * Create an overlay of a graph, for GraphBase. The layout of the graph is shared for good, and the state of the nodes and edges is shared until the first call to changeNode,
+     * which copies it whole - see GraphBase for why the copy isn't a sparse delta. The overlay starts with a copy of the base's shortest paths if it has them, so its first query
+     * in dynamic mode only repairs the paths. The base must not be changed or queried while it has overlays.
+     *
+     * @param base The graph to overlay
+     */
+    Graph(Graph base){
+        geometry = base.geometry;
+        xSize = base.xSize;
+        ySize = base.ySize;
+        colour = base.colour;
+        startNode = base.startNode;
+        endNode = base.endNode;
+        edgeStart = base.edgeStart;
+        edgeTargets = base.edgeTargets;
+        edgeTypes = base.edgeTypes;
+        edgeCarriers = base.edgeCarriers;
+        edgeReverse = base.edgeReverse;
+        types = base.types;
+        weights = base.weights;
+        blocked = base.blocked;
+        edgeWeights = base.edgeWeights;
+        sharedState = true;
+        createSearchSpace();
+        dynamic = base.dynamic;
+        if(base.treeValid && base.changedCount == 0){
+            System.arraycopy(base.distances, 0, distances, 0, distances.length);
+            System.arraycopy(base.parentEdges, 0, parentEdges, 0, parentEdges.length);
+            treeValid = true;
+        }
+    }
+
+    /**
+     * Create nodes and edges representing the boardView passed.
+     *
+     * @param boardView the board to represent as a graph.
+     * @param colour The colour of the player the graph should represent.
+     */
+    public void populateGraph(Piece[][] boardView, Piece colour){
+        populateGraph(new BoardSnapshot(boardView, 0), colour);
+    }
+
+    /**
+     * Create nodes and edges representing the snapshot passed.
+     *
+     * @param boardView the board to represent as a graph.
+     * @param colour The colour of the player the graph should represent.
+     */
+    public void populateGraph(BoardSnapshot boardView, Piece colour){
+        xSize = boardView.getSizeX();
+        ySize = boardView.getSizeY();
+        this.colour = colour;
+        geometry = BoardGeometry.get(xSize, ySize);
+        int cells = geometry.getCells();
+        startNode = cells;
+        endNode = cells + 1;
+
+        //Create nodes
+        types = new NodeType[cells + 2];
+        weights = new int[cells + 2];
+        blocked = new boolean[cells + 2];
+        for(int i = 0; i < xSize; i++){
+            for(int j = 0; j < ySize; j++){
+                int hex = geometry.getHex(i, j);
+                if(boardView.getPiece(i, j) == Piece.UNSET){
+                    types[hex] = NodeType.UNSET;
+                    weights[hex] = toFixed(UNSET_WEIGHT);
+                }
+                else if(boardView.getPiece(i, j) == colour){
+                    types[hex] = NodeType.PLAYER;
+                    weights[hex] = toFixed(PLAYER_WEIGHT);
+                }
+                else{
+                    types[hex] = NodeType.OPPONENT;
+                }
+            }
+        }
+        types[startNode] = NodeType.STARTEND;
+        types[endNode] = NodeType.STARTEND;
+
+        buildEdges();
+        sharedState = false;
+        changedCount = 0;
+        checkpoints = 0;
+        journalSize = 0;
+        createSearchSpace();
+        reset();
+
+        //Update which nodes are blocked, and work out the weight of every edge
+        calculateBlocking();
+        calculateWeights();
+    }
+
+    /**
+     * Create the arrays used to search the graph, once the nodes and edges exist.
+     */
+    private void createSearchSpace(){
+        int nodes = edgeStart.length - 1;
+        distances = new int[nodes];
+        reachedEpochs = new int[nodes];
+        visitedEpochs = new int[nodes];
+        frontier = new IndexedMinHeap(nodes);
+        fixedFrontier = new FixedPointQueue(distances, visitedEpochs);
+        parentEdges = new int[nodes];
+        changedEdges = new int[edgeTargets.length];
+        edgeOldWeights = new int[edgeTargets.length];
+        edgeChanged = new boolean[edgeTargets.length];
+        chain = new int[nodes];
+        invalidated = new int[nodes];
+        nodeInvalidated = new boolean[nodes];
+        goalDistances = new int[nodes];
+        savedNodes = new int[nodes];
+        savedDistances = new int[nodes];
+        savedParents = new int[nodes];
+        int lines = colour == Piece.RED ? ySize : xSize;
+        lineHeuristics = new int[lines];
+        lineHexCosts = new int[lines];
+        linePlayers = new boolean[lines];
+        linesChanged = new boolean[lines];
+        Arrays.fill(linesChanged, true);
+        lineCosts = new int[lines];
+        Arrays.fill(distances, NO_PATH);
+        Arrays.fill(parentEdges, -1);
+    }
+
+    /**
+     * @return The distance to the endNode from the startNode, using djikstra's algorithm, or null if the endNode can't be reached
+     */
+    public Double getDistance(){
+        if(dynamic){
+            return toDistance(getFixedDistance());
+        }
+        calculateDistance();
+        return toDistance(distanceTo(endNode));
+    }
+
+    /**
+     * Calculate the distance to the endNode from the startNode in fixed point - every weight multiplied by FIXED_POINT_SCALE - so that the distance is an exact int. Because the
+     * edges only have a few different weights, the nodes to visit are kept in a FixedPointQueue rather than a heap, so the search is close to linear in the size of the graph.
+     * Equal distances always compare equal, unlike the sums of doubles.
+     *
+     * @return The distance multiplied by FIXED_POINT_SCALE, or NO_PATH if the endNode can't be reached
+     */
+    public int getFixedDistance(){
+        if(dynamic){
+            updateDistances();
+            return distances[endNode];
+        }
+        reset();
+        fixedFrontier.clear(epoch);
+
+        int testingNode = startNode;
+        int distance = 0;
+        distances[startNode] = 0;
+        reachedEpochs[startNode] = epoch;
+        while(testingNode != -1){
+            visitedEpochs[testingNode] = epoch;
+            int chainSize = 0;
+            chain[chainSize++] = testingNode;
+            while(chainSize > 0){
+                int chainNode = chain[--chainSize];
+                if(chainNode == endNode){
+                    return distance;
+                }
+
+                //Settle the rest of the chain, and queue every unvisited node that it gives a shorter way to
+                for(int e = edgeStart[chainNode]; e < edgeStart[chainNode + 1]; e++){
+                    int weight = edgeWeights[e];
+                    int newNode = edgeTargets[e];
+                    if(weight == NO_EDGE || visitedEpochs[newNode] == epoch){
+                        continue;
+                    }
+                    if(weight == 0){
+                        distances[newNode] = distance;
+                        reachedEpochs[newNode] = epoch;
+                        visitedEpochs[newNode] = epoch;
+                        chain[chainSize++] = newNode;
+                    }
+                    else if(distance + weight < distanceTo(newNode)){
+                        distances[newNode] = distance + weight;
+                        reachedEpochs[newNode] = epoch;
+                        fixedFrontier.add(newNode, distance + weight, weight);
+                    }
+                }
+            }
+            testingNode = fixedFrontier.poll();
+            distance = fixedFrontier.getPolledDistance();
+        }
+        return NO_PATH;
+    }
+
+    /**
+     * Calculate the fixed point distance to the endNode from the startNode with A*, for positions where only the distance is wanted - the leaves of a search, which are evaluated
+     * and then rolled back. Nodes are visited in order of their distance plus a lower bound on the rest of the way to the endNode (see calculateHeuristics), so the search heads
+     * for the far edge and stops as soon as the endNode's distance is known, rarely looking at the parts of the board behind it.
+     * <p>
+     * In dynamic mode the shortest path tree is repaired this way, from the changes made since the last getFixedDistance, and then put back as it was: the changes are still
+     * waiting to be repaired afterwards. A leaf that is rolled back straight away then costs one repair that stops at the far edge, and the rollback leaves nothing to repair,
+     * rather than the whole tree being repaired for the move and again for the rollback. Without a tree, or if most of it would have to be repaired, the distance is searched
+     * for from scratch, still with A*, and still without building a tree.
+     *
+     * @return The distance multiplied by FIXED_POINT_SCALE, or NO_PATH if the endNode can't be reached
+     */
+    public int getGoalDistance(){
+        if(!dynamic || !treeValid){
+            return searchGoal();
+        }
+        dropUnchangedEdges();
+        if(changedCount == 0){
+            return distances[endNode];
+        }
+        nextEpoch();
+        saving = true;
+        savedCount = 0;
+        calculateHeuristics();
+        boolean repaired = repairDistances(true);
+        int distance = distances[endNode];
+
+        //Put the tree back, newest first
+        for(int i = savedCount - 1; i >= 0; i--){
+            distances[savedNodes[i]] = savedDistances[i];
+            parentEdges[savedNodes[i]] = savedParents[i];
+        }
+        saving = false;
+        return repaired ? distance : searchGoal();
+    }
+
+    /**
+     * Search for the fixed point distance to the endNode from the startNode with A*, from scratch, without using or changing the shortest path tree of dynamic mode.
+     *
+     * @return The distance multiplied by FIXED_POINT_SCALE, or NO_PATH if the endNode can't be reached
+     */
+    private int searchGoal(){
+        nextEpoch();
+        frontier.clear();
+        calculateHeuristics();
+
+        goalDistances[startNode] = 0;
+        reachedEpochs[startNode] = epoch;
+        frontier.offer(startNode, startHeuristic);
+        while(!frontier.isEmpty()){
+            //The node with the lowest distance plus heuristic - as the heuristic is consistent, its distance is final
+            int testingNode = frontier.poll();
+            visitedEpochs[testingNode] = epoch;
+            int distance = goalDistances[testingNode];
+            int chainSize = 0;
+            chain[chainSize++] = testingNode;
+            while(chainSize > 0){
+                int chainNode = chain[--chainSize];
+                if(chainNode == endNode){
+                    return distance;
+                }
+
+                //Settle the rest of the chain, and queue every unvisited node that it gives a shorter way to
+                for(int e = edgeStart[chainNode]; e < edgeStart[chainNode + 1]; e++){
+                    int weight = edgeWeights[e];
+                    int newNode = edgeTargets[e];
+                    if(weight == NO_EDGE || visitedEpochs[newNode] == epoch){
+                        continue;
+                    }
+                    if(weight == 0){
+                        goalDistances[newNode] = distance;
+                        reachedEpochs[newNode] = epoch;
+                        visitedEpochs[newNode] = epoch;
+                        chain[chainSize++] = newNode;
+                    }
+                    else if(reachedEpochs[newNode] != epoch || distance + weight < goalDistances[newNode]){
+                        goalDistances[newNode] = distance + weight;
+                        reachedEpochs[newNode] = epoch;
+                        frontier.offer(newNode, distance + weight + heuristic(newNode));
+                    }
+                }
+            }
+        }
+        return NO_PATH;
+    }
+
+    /**
+     * @param node The node
+     *
+     * @return The fixed point distance the current query has found to the node so far, or NO_PATH if it hasn't been reached
+     */
+    private int distanceTo(int node){
+        return reachedEpochs[node] == epoch ? distances[node] : NO_PATH;
+    }
+
+    /**
+     * Convert a weight or distance to fixed point.
+     *
+     * @param value The weight or distance
+     *
+     * @return The value multiplied by FIXED_POINT_SCALE, rounded to the nearest int
+     */
+    public static int toFixed(double value){
+        return (int) Math.round(value * FIXED_POINT_SCALE);
+    }
+
+    /**
+     * Convert a fixed point distance back to a distance, as returned by getDistance.
+     *
+     * @param fixedDistance The distance multiplied by FIXED_POINT_SCALE, or NO_PATH
+     *
+     * @return The distance, or null for NO_PATH
+     */
+    public static Double toDistance(int fixedDistance){
+        if(fixedDistance == NO_PATH){
+            return null;
+        }
+        return (double) fixedDistance / FIXED_POINT_SCALE;
+    }
+
+    /**
+     * Reset the distances to each node to allow them to be recalculated. This only starts a new epoch, so it takes constant time however large the graph is - the stamps are only
+     * cleared when the epoch counter runs out. In dynamic mode, the next query recalculates every distance from scratch.
+     */
+    public void reset(){
+        nextEpoch();
+        treeValid = false;
+        clearChanges();
+    }
+
+    /**
+     * Move on to the next epoch, clearing the stamps if the epoch counter has run out.
+     */
+    private void nextEpoch(){
+        if(epoch == Integer.MAX_VALUE){
+            Arrays.fill(reachedEpochs, 0);
+            Arrays.fill(visitedEpochs, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    /**
+     * Turn dynamic mode on or off. In dynamic mode the shortest path to every node is kept between queries, and after changeNode only the part of the shortest path tree that the
+     * changed edges affect is repaired (in the style of Ramalingam and Reps): nodes whose path used an edge that got heavier or disappeared are invalidated along with everything
+     * below them in the tree, then their distances, and those of nodes reached more cheaply across edges that got lighter, are worked out again starting from the rest of the
+     * tree. If most of the tree is invalidated, everything is recalculated instead.
+     *
+     * @param dynamic Whether to use dynamic mode
+     */
+    public void setDynamic(boolean dynamic){
+        if(this.dynamic != dynamic){
+            this.dynamic = dynamic;
+            reset();
+        }
+    }
+
+    /**
+     * Bring the distances to every node up to date in dynamic mode, repairing the shortest path tree after changes or calculating it from scratch if there isn't one.
+     */
+    private void updateDistances(){
+        if(!treeValid){
+            calculateAllDistances();
+            return;
+        }
+        dropUnchangedEdges();
+        if(changedCount == 0){
+            return;
+        }
+        boolean repaired = repairDistances(false);
+        clearChanges();
+        if(!repaired){
+            calculateAllDistances();
+        }
+    }
+
+    /**
+     * Repair the shortest path tree after the changes in changedEdges, which are left for the caller to clear.
+     *
+     * @param goal Whether to stop as soon as the endNode's distance is known, with the nodes visited in order of distance plus heuristic, as for getGoalDistance. The rest of the
+     * tree is left part repaired, so must be put back.
+     *
+     * @return false if too much of the tree was lost to be worth repairing, and nothing was repaired
+     */
+    private boolean repairDistances(boolean goal){
+        //Invalidate everything below an edge on the tree that got heavier or disappeared
+        int invalidatedCount = 0;
+        for(int i = 0; i < changedCount; i++){
+            int e = changedEdges[i];
+            int node = edgeTargets[e];
+            if(parentEdges[node] == e && increased(edgeOldWeights[e], edgeWeights[e]) && !nodeInvalidated[node]){
+                invalidatedCount = invalidateSubtree(node, invalidatedCount);
+            }
+        }
+
+        //Too much of the tree has gone to be worth repairing
+        if(invalidatedCount * 2 > distances.length){
+            for(int i = 0; i < invalidatedCount; i++){
+                nodeInvalidated[invalidated[i]] = false;
+            }
+            return false;
+        }
+
+        frontier.clear();
+        //Each invalidated node starts from its best neighbour that is still on the tree
+        for(int i = 0; i < invalidatedCount; i++){
+            int node = invalidated[i];
+            for(int e = edgeStart[node]; e < edgeStart[node + 1]; e++){
+                int reverse = edgeReverse[e];
+                int from = edgeTargets[e];
+                int weight = edgeWeights[reverse];
+                if(weight != NO_EDGE && from != endNode && !nodeInvalidated[from] && distances[from] != NO_PATH && distances[from] + weight < distances[node]){
+                    setDistance(node, distances[from] + weight, reverse);
+                }
+            }
+            if(distances[node] != NO_PATH){
+                frontier.offer(node, goal ? distances[node] + heuristic(node) : distances[node]);
+            }
+        }
+        for(int i = 0; i < invalidatedCount; i++){
+            nodeInvalidated[invalidated[i]] = false;
+        }
+
+        //Edges that got lighter or appeared may give a shorter way to their far end
+        for(int i = 0; i < changedCount; i++){
+            int e = changedEdges[i];
+            int from = edgeTargets[edgeReverse[e]];
+            int node = edgeTargets[e];
+            int weight = edgeWeights[e];
+            if(weight != NO_EDGE && from != endNode && distances[from] != NO_PATH && distances[from] + weight < distances[node]){
+                setDistance(node, distances[from] + weight, e);
+                frontier.offer(node, goal ? distances[node] + heuristic(node) : distances[node]);
+            }
+        }
+
+        //The endNode's distance is known once nothing queued could lower it - queue it with its current distance, so it comes out at that point
+        if(goal && distances[endNode] != NO_PATH){
+            frontier.offer(endNode, distances[endNode]);
+        }
+        propagate(goal);
+        return true;
+    }
 
     /**
-     * Create the start and end nodes, initialise the node map.
+     * @param oldWeight The weight of an edge before a change
+     * @param newWeight The weight after the change
+     *
+     * @return boolean indicating whether the edge got heavier or disappeared
      */
-    public Graph(){
-        nodesMap = new HashMap<Coordinate, Node>();
-        startNode = new Node(0.0, NodeType.STARTEND, new Coordinate(-1, -1));
-        endNode = new Node(0.0, NodeType.STARTEND, new Coordinate(-1, -1));
+    private static boolean increased(int oldWeight, int newWeight){
+        if(newWeight == NO_EDGE){
+            return oldWeight != NO_EDGE;
+        }
+        return oldWeight != NO_EDGE && newWeight > oldWeight;
     }
 
     /**
-     * Create nodes and edges representing the boardView passed.
+     * Invalidate a node and every node whose shortest path goes through it, setting their distances to NO_PATH.
      *
-     * @param boardView the board to represent as a graph.
-     * @param colour The colour of the player the graph should represent.
+     * @param root The node to invalidate
+     * @param invalidatedCount The number of nodes already in invalidated
+     *
+     * @return The new number of nodes in invalidated
      */
-    public void populateGraph(Piece[][] boardView, Piece colour){
-
-        //Create nodes
-        xSize = boardView.length;
-        ySize = boardView[0].length;
-        this.colour = colour;
-        for(int i = 0; i < xSize; i++){
-            for(int j = 0; j < ySize; j++){
-                //Make a new node for each position on the board, add them to the map
-                Node node;
-                Coordinate coords = new Coordinate(i, j);
-                if(boardView[i][j] == Piece.UNSET){
-                    node = new Node(Graph.UNSET_WEIGHT, NodeType.UNSET, coords);
-                }
-                else if(boardView[i][j] == colour){
-                    node = new Node(Graph.PLAYER_WEIGHT, NodeType.PLAYER, coords);
-                }
-                else{
-                    node = new Node(null, NodeType.OPPONENT, coords);
+    private int invalidateSubtree(int root, int invalidatedCount){
+        int first = invalidatedCount;
+        invalidated[invalidatedCount++] = root;
+        nodeInvalidated[root] = true;
+        for(int i = first; i < invalidatedCount; i++){
+            int node = invalidated[i];
+            setDistance(node, NO_PATH, -1);
+            //The endNode is never passed through, so nothing is below it
+            if(node != endNode){
+                for(int e = edgeStart[node]; e < edgeStart[node + 1]; e++){
+                    int child = edgeTargets[e];
+                    if(parentEdges[child] == e && !nodeInvalidated[child]){
+                        nodeInvalidated[child] = true;
+                        invalidated[invalidatedCount++] = child;
+                    }
                 }
-                nodesMap.put(coords, node);
             }
         }
+        return invalidatedCount;
+    }
 
-        for(Node node : nodesMap.values()){
-            //Calculate standard edges and bridges for all non-opponent nodes
-            if(node.getType() != NodeType.OPPONENT){
-                calculateEdges(node);
-                calculateBridges(node);
+    /**
+     * Take the edges that are back at the weight they had at the last query out of the list of changed edges. getGoalDistance leaves its changes to be repaired later, so
+     * after a leaf is rolled back its edges would otherwise stay in the list, and every leaf searched after it would go over them again.
+     */
+    private void dropUnchangedEdges(){
+        int kept = 0;
+        for(int i = 0; i < changedCount; i++){
+            int e = changedEdges[i];
+            if(edgeWeights[e] == edgeOldWeights[e]){
+                edgeChanged[e] = false;
+            }
+            else{
+                changedEdges[kept++] = e;
             }
         }
+        changedCount = kept;
+    }
 
-        try{
-            //Join the start and end nodes to the relevant edge nodes
-            joinStartEnd(startNode);
-            joinStartEnd(endNode);
-        }
-        catch(InvalidPositionException e){
-            System.out.println("Start/End node is not NodeType.STARTEND??");
-            e.printStackTrace();
+    /**
+     * Forget the list of changed edges.
+     */
+    private void clearChanges(){
+        for(int i = 0; i < changedCount; i++){
+            edgeChanged[changedEdges[i]] = false;
         }
+        changedCount = 0;
+    }
 
-        //Update which nodes are blocked
-        calculateBlocking();
+    /**
+     * Calculate the distance to every node from the startNode with djikstra's algorithm, recording the edge each node is reached by.
+     */
+    private void calculateAllDistances(){
+        Arrays.fill(distances, NO_PATH);
+        Arrays.fill(parentEdges, -1);
+        frontier.clear();
+        distances[startNode] = 0;
+        frontier.offer(startNode, 0);
+        propagate(false);
+        treeValid = true;
     }
 
     /**
-     * @return The distance to the endNode from the startNode, using djikstra's algorithm
+     * Run djikstra's algorithm from the nodes in the frontier until it is empty, lowering distances and recording the edge each node is reached by. The endNode is never passed
+     * through.
+     *
+     * @param goal Whether the frontier is ordered by distance plus heuristic, stopping as soon as the endNode's distance is final
      */
-    public Double getDistance(){
-        calculateDistance();
-        return endNode.getDistance();
+    private void propagate(boolean goal){
+        while(!frontier.isEmpty()){
+            int polled = frontier.poll();
+            if(goal && polled == endNode){
+                return;
+            }
+            int chainSize = 0;
+            chain[chainSize++] = polled;
+            while(chainSize > 0){
+                int testingNode = chain[--chainSize];
+                if(testingNode == endNode){
+                    //Reached along a chain, so no closer than the node taken from the frontier
+                    if(goal){
+                        return;
+                    }
+                    continue;
+                }
+                for(int e = edgeStart[testingNode]; e < edgeStart[testingNode + 1]; e++){
+                    int weight = edgeWeights[e];
+                    int newNode = edgeTargets[e];
+                    if(weight != NO_EDGE && distances[testingNode] + weight < distances[newNode]){
+                        setDistance(newNode, distances[testingNode] + weight, e);
+                        //Nothing queued is closer, so the rest of the chain can be expanded now
+                        if(weight == 0){
+                            chain[chainSize++] = newNode;
+                        }
+                        else{
+                            frontier.offer(newNode, goal ? distances[newNode] + heuristic(newNode) : distances[newNode]);
+                        }
+                    }
+                }
+            }
+        }
     }
 
     /**
-     * Reset the distances to each node to allow them to be recalculated.
+     * Set the distance to a node and the edge it is reached by, first saving the old ones if getGoalDistance is going to put the tree back.
+     *
+     * @param node The node
+     * @param distance The new fixed point distance, or NO_PATH
+     * @param parentEdge The edge the node is now reached by, or -1
      */
-    public void reset(){
-        //Reset the distance from startNode for each node
-        for(Node node : nodesMap.values()){
-            node.setDistance(null);
+    private void setDistance(int node, int distance, int parentEdge){
+        if(saving && visitedEpochs[node] != epoch){
+            visitedEpochs[node] = epoch;
+            savedNodes[savedCount] = node;
+            savedDistances[savedCount] = distances[node];
+            savedParents[savedCount] = parentEdges[node];
+            savedCount++;
         }
-        startNode.setDistance(null);
-        endNode.setDistance(null);
+        distances[node] = distance;
+        parentEdges[node] = parentEdge;
     }
 
     /**
@@ -169,438 +943,614 @@ public class Graph{
      *
      * @param coords The coordinates of the node to change
      * @param type The new type of the node
-     * @param weight The new weight of the node
+     * @param weight The new weight of the node, or null for NodeType.OPPONENT
      *
      * @return boolean indicating successful operation
      *
      * @throws InvalidPositionException The coordinates passed don't represent a node.
      */
     public boolean changeNode(Coordinate coords, NodeType type, Double weight) throws InvalidPositionException{
-        Node node = nodesMap.get(coords);
+        if(coords.getX() < 0 || coords.getY() < 0 || coords.getX() >= xSize || coords.getY() >= ySize){
+            throw new InvalidPositionException();
+        }
+        return changeNode(geometry.getHex(coords.getX(), coords.getY()), type, weight);
+    }
 
-        if(node == null){
+    /**
+     * Change a node by its hex number, x * sizeY + y, and update all the edges affected by this.
+     *
+     * @param hex The hex number of the node to change
+     * @param type The new type of the node
+     * @param weight The new weight of the node, or null for NodeType.OPPONENT
+     *
+     * @return boolean indicating successful operation
+     *
+     * @throws InvalidPositionException The hex number doesn't represent a node.
+     */
+    public boolean changeNode(int hex, NodeType type, Double weight) throws InvalidPositionException{
+        if(hex < 0 || hex >= startNode){
             throw new InvalidPositionException();
         }
 
+        //An overlay takes its own copy of the node and edge state before changing anything
+        if(sharedState){
+            types = types.clone();
+            weights = weights.clone();
+            blocked = blocked.clone();
+            edgeWeights = edgeWeights.clone();
+            sharedState = false;
+        }
+
         //Update type and weight
-        node.setType(type);
-        node.setWeight(weight);
-
-        //Remove all edges
-        for(Edge edge : node.getConnectedEdges()){
-            Node otherNode = edge.getOtherNode(node);
-            otherNode.removeEdge(edge);
-        }
-        node.removeEdges();
-
-        //Recalculate standard edges for this node
-        if(node.getType() != NodeType.OPPONENT){
-            calculateEdges(node);
-        }
-
-        //Remove bridges for adjacents
-        List<Coordinate> adjacents = coords.getAdjactents(xSize, ySize);
-        for(Coordinate newCoords : adjacents){
-            Node updateNode = nodesMap.get(newCoords);
-            if(updateNode != null){
-                ArrayList<Edge> edges = new ArrayList<Edge>(updateNode.getConnectedEdges());
-                for(Edge edge : edges){
-                    if(edge.getType() == EdgeType.BRIDGE){
-                        edge.getNode1().removeEdge(edge);
-                        edge.getNode2().removeEdge(edge);
-                    }
+        if(checkpoints > 0){
+            record(hex, JOURNAL_TYPE, types[hex].ordinal());
+            record(hex, JOURNAL_WEIGHT, weights[hex]);
+        }
+        types[hex] = type;
+        weights[hex] = weight == null ? 0 : toFixed(weight);
+        linesChanged[getLine(hex)] = true;
+
+        //Only the edges of this hex and its neighbours can change
+        if(useBlocking){
+            setBlocked(hex, isBlocked(hex));
+        }
+        updateEdges(hex);
+        for(int i = geometry.getAdjacentStart(hex); i < geometry.getAdjacentStart(hex + 1); i++){
+            int adjacent = geometry.getAdjacent(i);
+            boolean blockingChanged = false;
+            if(useBlocking){
+                boolean nowBlocked = isBlocked(adjacent);
+                blockingChanged = nowBlocked != blocked[adjacent];
+                setBlocked(adjacent, nowBlocked);
+            }
+            //Standard edges depend on whether the neighbour is blocked, and the neighbour's bridges may be carried by this hex - including bridges to the start and end nodes
+            for(int e = edgeStart[adjacent]; e < edgeStart[adjacent + 1]; e++){
+                EdgeType edgeType = EDGE_TYPES[edgeTypes[e]];
+                if((edgeType == EdgeType.STANDARD && blockingChanged) || (edgeType == EdgeType.BRIDGE && (edgeCarriers[2 * e] == hex || edgeCarriers[2 * e + 1] == hex))){
+                    updateEdge(e);
                 }
             }
         }
+        return true;
+    }
 
-        //Recalculate bridges for adjacents
-        for(Coordinate newCoords : adjacents){
-            Node updateNode = nodesMap.get(newCoords);
-            if(updateNode != null && updateNode.getType() != NodeType.OPPONENT){
-                calculateBridges(updateNode);
+    /**
+     * Find the hexes that matter to the current shortest path in dynamic mode: the hexes it passes through, and the carriers of the bridges it uses. Call after a query.
+     *
+     * @param cells Filled with the hex numbers, which may be repeated - must be at least 3 * (hexes + 1) long
+     *
+     * @return The number of hex numbers written to cells, 0 if there is no path, the graph isn't in dynamic mode, or it has changed since the last query
+     */
+    public int getPathCells(int[] cells){
+        if(!dynamic || !treeValid || changedCount > 0 || distances[endNode] == NO_PATH){
+            return 0;
+        }
+        int count = 0;
+        int node = endNode;
+        while(node != startNode){
+            int e = parentEdges[node];
+            if(node != endNode){
+                cells[count++] = node;
             }
+            if(EDGE_TYPES[edgeTypes[e]] == EdgeType.BRIDGE){
+                cells[count++] = edgeCarriers[2 * e];
+                cells[count++] = edgeCarriers[2 * e + 1];
+            }
+            node = edgeTargets[edgeReverse[e]];
         }
+        return count;
+    }
 
-        //Calculate bridges for this node
-        if(node.getType() != NodeType.OPPONENT){
-            calculateBridges(node);
-        }
+    /**
+     * Mark the position the graph is in, so that it can be put back with rollback. Checkpoints can be nested, and each one should be rolled back exactly once, innermost first.
+     * The changes are journaled until every checkpoint has been rolled back. Checkpoints taken with no change between them return the same token, so the token can't tell how
+     * deep the nesting is - a count of the checkpoints still open is kept instead.
+     *
+     * @return The token to pass to rollback
+     */
+    public int checkpoint(){
+        checkpoints++;
+        return journalSize;
+    }
 
-        //Join start and end
-        if(node.getType() != NodeType.OPPONENT){
-            if(colour == Piece.RED && (node.getCoords().getY() == 0 || node.getCoords().getY() == ySize - 1)){
-                joinStartEnd(startNode);
-                joinStartEnd(endNode);
-            }
-            else if(colour == Piece.BLUE && (node.getCoords().getX() == 0 || node.getCoords().getX() == xSize - 1)){
-                joinStartEnd(startNode);
-                joinStartEnd(endNode);
+    /**
+     * Undo every change made since a checkpoint, newest first, by putting back the values the journal recorded - nothing is recalculated. In dynamic mode the restored edges are
+     * noted as changes, so the next query repairs the shortest paths.
+     *
+     * @param token The value returned by checkpoint
+     */
+    public void rollback(int token){
+        while(journalSize > token){
+            journalSize--;
+            int index = journal[journalSize] / JOURNAL_KINDS;
+            int value = journalValues[journalSize];
+            switch(journal[journalSize] % JOURNAL_KINDS){
+                case JOURNAL_TYPE:
+                    types[index] = NODE_TYPES[value];
+                    linesChanged[getLine(index)] = true;
+                    break;
+                case JOURNAL_WEIGHT:
+                    weights[index] = value;
+                    linesChanged[getLine(index)] = true;
+                    break;
+                case JOURNAL_BLOCKED:
+                    blocked[index] = value == 1;
+                    break;
+                default:
+                    applyWeight(index, value);
+                    break;
             }
         }
+        if(checkpoints > 0){
+            checkpoints--;
+        }
+    }
+
+    /**
+     * Add an entry to the journal.
+     *
+     * @param index The node or edge changed
+     * @param kind The array changed, JOURNAL_TYPE, JOURNAL_WEIGHT, JOURNAL_BLOCKED or JOURNAL_EDGE
+     * @param oldValue The value being overwritten
+     */
+    private void record(int index, int kind, int oldValue){
+        if(journalSize == journal.length){
+            int length = Math.max(64, journal.length * 2);
+            journal = Arrays.copyOf(journal, length);
+            journalValues = Arrays.copyOf(journalValues, length);
+        }
+        journal[journalSize] = index * JOURNAL_KINDS + kind;
+        journalValues[journalSize] = oldValue;
+        journalSize++;
+    }
 
-        //Recalculate start and end
-        ArrayList<Edge> edges = new ArrayList<Edge>(startNode.getConnectedEdges());
-        for(Edge edge : edges){
-            startNode.removeEdge(edge);
-            edge.getOtherNode(startNode).removeEdge(edge);
+    /**
+     * Set whether a node is blocked, journaling the old value if it changes.
+     *
+     * @param hex The node
+     * @param nowBlocked Whether the node is now blocked
+     */
+    private void setBlocked(int hex, boolean nowBlocked){
+        if(checkpoints > 0 && blocked[hex] != nowBlocked){
+            record(hex, JOURNAL_BLOCKED, blocked[hex] ? 1 : 0);
         }
-        edges = new ArrayList<Edge>(endNode.getConnectedEdges());
-        for(Edge edge : edges){
-            endNode.removeEdge(edge);
-            edge.getOtherNode(endNode).removeEdge(edge);
+        blocked[hex] = nowBlocked;
+    }
+
+    /**
+     * Work out the weights of every edge to and from a node again.
+     *
+     * @param node The node
+     */
+    private void updateEdges(int node){
+        for(int e = edgeStart[node]; e < edgeStart[node + 1]; e++){
+            updateEdge(e);
         }
-        joinStartEnd(startNode);
-        joinStartEnd(endNode);
+    }
 
-        //calculate blocking
-        calculateBlocking();
-        return true;
+    /**
+     * Work out the weight of an edge again, in both directions.
+     *
+     * @param e The edge
+     */
+    private void updateEdge(int e){
+        setWeight(e, calculateWeight(e));
+        setWeight(edgeReverse[e], calculateWeight(edgeReverse[e]));
+    }
+
+    /**
+     * @return The width of the board in hexes.
+     */
+    public int getSizeX(){
+        return xSize;
+    }
+
+    /**
+     * @return The height of the board in hexes.
+     */
+    public int getSizeY(){
+        return ySize;
+    }
+
+    /**
+     * @return The colour of the player who this graph represents.
+     */
+    public Piece getColour(){
+        return colour;
+    }
+
+    /**
+     * @param coords The coordinates of the node
+     *
+     * @return The type of the node
+     */
+    public NodeType getType(Coordinate coords){
+        return types[geometry.getHex(coords.getX(), coords.getY())];
+    }
+
+    /**
+     * @param coords The coordinates of the node
+     *
+     * @return The weight of the node, or null if it is NodeType.OPPONENT
+     */
+    public Double getWeight(Coordinate coords){
+        int hex = geometry.getHex(coords.getX(), coords.getY());
+        if(types[hex] == NodeType.OPPONENT){
+            return null;
+        }
+        return (double) weights[hex] / FIXED_POINT_SCALE;
     }
 
     /**
-     * If there is an adjacent NodeType.OPPONENT node, set the node to be blocked. Update all nodes.
+     * If there is an adjacent NodeType.OPPONENT node, set the node to be blocked. Update all nodes - used when the graph is populated, changeNode only updates the changed hex and
+     * its neighbours.
      *
      * @return boolean indicating successful operation
      */
     private boolean calculateBlocking(){
         if(useBlocking){
-            for(Node node : nodesMap.values()){
-                if(node.getType() == NodeType.UNSET){
-                    boolean found = false;
-                    int i = 0;
-                    List<Coordinate> adjacents = node.getCoords().getAdjactents(xSize, ySize);
-                    //Check adjacents for opponent nodes, set blocked if found
-                    while(i < adjacents.size() && !found){
-                        if(nodesMap.get(adjacents.get(i)).getType() == NodeType.OPPONENT){
-                            node.setBlocked(true);
-                            found = true;
-                        }
-                        else{
-                            node.setBlocked(false);
-                        }
-                        i++;
-                    }
-                }
+            for(int hex = 0; hex < geometry.getCells(); hex++){
+                blocked[hex] = isBlocked(hex);
             }
         }
         return true;
     }
 
     /**
-     * Calculate the standard edges for a node
-     *
-     * @param node The node to calculate edges for
+     * @param hex The hex to check
      *
-     * @return boolean indicating successful operation
+     * @return boolean indicating whether the hex is NodeType.UNSET and has an adjacent NodeType.OPPONENT node
      */
-    private boolean calculateEdges(Node node){
-        //Add standard edges between non-opponents
-        Coordinate coords = node.getCoords();
-        List<Coordinate> adjacents = coords.getAdjactents(xSize, ySize);
-        for(Coordinate newCoords : adjacents){
-            Node node2 = nodesMap.get(newCoords);
-            if(node2 != null && node2.getType() != NodeType.OPPONENT){
-                try{
-                    new Edge(node, node2, EdgeType.STANDARD, Graph.STANDARD_EDGE_WEIGHT_MODIFIER);
-                }
-                catch(NodeWeightNotSetException e){
-                    System.out.println("Node weight not properly set during population of graph");
-                    e.printStackTrace();
-                }
+    private boolean isBlocked(int hex){
+        if(types[hex] != NodeType.UNSET){
+            return false;
+        }
+        for(int i = geometry.getAdjacentStart(hex); i < geometry.getAdjacentStart(hex + 1); i++){
+            if(types[geometry.getAdjacent(i)] == NodeType.OPPONENT){
+                return true;
             }
         }
-        return true;
+        return false;
+    }
+
+    /**
+     * Work out the current weight of every edge.
+     */
+    private void calculateWeights(){
+        for(int e = 0; e < edgeTargets.length; e++){
+            setWeight(e, calculateWeight(e));
+        }
     }
 
     /**
-     * Calculate the bridge edges (except those connected to the start and end nodes)
+     * Set the weight of an edge, journaling the old weight if it changes.
      *
-     * @param node The node to calculate bridges for
+     * @param e The edge
+     * @param weight The new fixed point weight, or NO_EDGE
+     */
+    private void setWeight(int e, int weight){
+        if(checkpoints > 0 && weight != edgeWeights[e]){
+            record(e, JOURNAL_EDGE, edgeWeights[e]);
+        }
+        applyWeight(e, weight);
+    }
+
+    /**
+     * Set the weight of an edge, noting the change if the distances are being kept up to date.
      *
-     * @return boolean indicating successful operation
+     * @param e The edge
+     * @param weight The new fixed point weight, or NO_EDGE
      */
-    private boolean calculateBridges(Node node){
-        if(useBridges){
-            ArrayList<Node> allNodes = new ArrayList<Node>(nodesMap.values());
-
-            if(node.getType() == NodeType.UNSET || node.getType() == NodeType.PLAYER){
-                List<Coordinate> bridgeCoords = node.getCoords().getBridges(xSize, ySize);
-                //Iterate through the nodes that could have edges to the node passed
-                for(Coordinate coords : bridgeCoords){
-                    Node node2 = nodesMap.get(coords);
-                    if(node2.getType() == NodeType.UNSET || node2.getType() == NodeType.PLAYER){
-                        ArrayList<Node> connectedNodes = new ArrayList<Node>();
-                        List<Edge> node1ConnectedEdges = node.getConnectedEdges();
-                        //List node 1' adjacent nodes
-                        for(Edge edge : node1ConnectedEdges){
-                            if(edge.getType() == EdgeType.STANDARD){
-                                Node otherNode = edge.getOtherNode(node);
-                                if(otherNode.getType() == NodeType.UNSET){
-                                    connectedNodes.add(edge.getOtherNode(node));
-                                }
-                            }
-                        }
-                        int i = 0;
-                        List<Edge> node2Connectededges = node2.getConnectedEdges();
-                        //Increment i for each NodeType.UNSET node adjacent to both node 1 and node 2
-                        for(Edge edge : node2Connectededges){
-                            if(edge.getType() == EdgeType.STANDARD){
-                                Node otherNode = edge.getOtherNode(node2);
-                                if(otherNode.getType() == NodeType.UNSET){
-                                    if(connectedNodes.contains(edge.getOtherNode(node2))){
-                                        i++;
-                                    }
-                                }
-                            }
-                        }
-                        //If there are two unset nodes which are adjacent to both node1 and node2, there is a bridge between them
-                        if(i == 2){
-                            try{
-                                //Create a new edge using the correct weight modifier depending on the type of bridge
-                                if(node.getType() == NodeType.PLAYER && node2.getType() == NodeType.PLAYER){
-                                    new Edge(node, node2, EdgeType.BRIDGE, Graph.OBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                                }
-                                else if(node.getType() == NodeType.UNSET && node2.getType() == NodeType.UNSET){
-                                    new Edge(node, node2, EdgeType.BRIDGE, Graph.UNOBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                                }
-                                else if(node.getType() == NodeType.UNSET && node2.getType() == NodeType.PLAYER){
-                                    new Edge(node, node2, EdgeType.BRIDGE, Graph.SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                                }
-                                else if(node2.getType() == NodeType.UNSET && node.getType() == NodeType.PLAYER){
-                                    new Edge(node, node2, EdgeType.BRIDGE, Graph.SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                                }
-                            }
-                            catch(NodeWeightNotSetException e){
-                                e.printStackTrace();
-                            }
-                        }
-                    }
-                }
-            }
+    private void applyWeight(int e, int weight){
+        if(weight != edgeWeights[e] && treeValid && !edgeChanged[e]){
+            edgeChanged[e] = true;
+            edgeOldWeights[e] = edgeWeights[e];
+            changedEdges[changedCount++] = e;
         }
-        return true;
+        edgeWeights[e] = weight;
     }
 
     /**
-     * Create all bridges and standard edges for the start/end node.
+     * Work out the current weight of an edge from the nodes it connects. The weight is the average of the weights of the two nodes, plus the modifier for the type of edge.
      *
-     * @param node The node to calculate bridges for.
+     * @param e The edge
      *
-     * @throws InvalidPositionException The node passed is not startNode or endNode. (The nodeType is not NodeType.STARTEND)
+     * @return The fixed point weight, or NO_EDGE if the edge doesn't currently exist
      */
-    private boolean joinStartEnd(Node node) throws InvalidPositionException{
-        if(node.getType() != NodeType.STARTEND){
-            throw new InvalidPositionException();
+    private int calculateWeight(int e){
+        int node1 = edgeTargets[edgeReverse[e]];
+        int node2 = edgeTargets[e];
+        if(types[node1] == NodeType.OPPONENT || types[node2] == NodeType.OPPONENT){
+            return NO_EDGE;
         }
-
-        if(colour == Piece.RED){
-            //add standard edges to NodeType.Player and NodeType.UNSET nodes along the top and bottom
-            for(int i = 0; i < xSize; i++){
-                try{
-                    if(nodesMap.get(new Coordinate(i, 0)).getType() != NodeType.OPPONENT){
-                        new Edge(startNode, nodesMap.get(new Coordinate(i, 0)), EdgeType.STARTEND, Graph.STANDARD_EDGE_WEIGHT_MODIFIER);
-                    }
-                    if(nodesMap.get(new Coordinate(i, ySize - 1)).getType() != NodeType.OPPONENT){
-                        new Edge(endNode, nodesMap.get(new Coordinate(i, ySize - 1)), EdgeType.STARTEND, Graph.STANDARD_EDGE_WEIGHT_MODIFIER);
-                    }
-                }
-                catch(NodeWeightNotSetException e){
-                    e.printStackTrace();
-                }
+        int weight = (weights[node1] + weights[node2]) / 2;
+        EdgeType type = EDGE_TYPES[edgeTypes[e]];
+        if(type == EdgeType.STANDARD){
+            weight += toFixed(STANDARD_EDGE_WEIGHT_MODIFIER);
+            if(blocked[node1] && blocked[node2]){
+                weight += toFixed(BLOCKED_WEIGHT_MODIFIER);
             }
         }
-        else if(colour == Piece.BLUE){
-            //add standard edges to NodeType.Player and NodeType.UNSET nodes along the left and right
-            for(int i = 0; i < ySize; i++){
-                try{
-                    if(nodesMap.get(new Coordinate(0, i)).getType() != NodeType.OPPONENT){
-                        new Edge(startNode, nodesMap.get(new Coordinate(0, i)), EdgeType.STARTEND, Graph.STANDARD_EDGE_WEIGHT_MODIFIER);
-                    }
-                    if(nodesMap.get(new Coordinate(xSize - 1, i)).getType() != NodeType.OPPONENT){
-                        new Edge(endNode, nodesMap.get(new Coordinate(xSize - 1, i)), EdgeType.STARTEND, Graph.STANDARD_EDGE_WEIGHT_MODIFIER);
-                    }
-                }
-                catch(NodeWeightNotSetException e){
-                    e.printStackTrace();
-                }
+        else if(type == EdgeType.BRIDGE){
+            //If the two nodes which are adjacent to both ends aren't both unset, there is no bridge
+            if(types[edgeCarriers[2 * e]] != NodeType.UNSET || types[edgeCarriers[2 * e + 1]] != NodeType.UNSET){
+                return NO_EDGE;
+            }
+            //Use the correct weight modifier depending on the type of bridge - the start and end nodes count as obtained
+            if(types[node1] != NodeType.UNSET && types[node2] != NodeType.UNSET){
+                weight += toFixed(OBTAINED_BRIDGE_WEIGHT_MODIFIER);
+            }
+            else if(types[node1] == NodeType.UNSET && types[node2] == NodeType.UNSET){
+                weight += toFixed(UNOBTAINED_BRIDGE_WEIGHT_MODIFIER);
+            }
+            else{
+                weight += toFixed(SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER);
             }
-
         }
-        if(useBridges){
-            //Add bridges to the start and end nodes
-            ArrayList<Node> otherNodes = new ArrayList<Node>();
-            if(node == startNode){
-                //Create list of nodes that bridges exist for
-                if(colour == Piece.RED){
-                    for(int i = 1; i < xSize - 1; i++){
-                        otherNodes.add(nodesMap.get(new Coordinate(i, 1)));
-                    }
-                }
-                if(colour == Piece.BLUE){
-                    for(int i = 1; i < ySize - 1; i++){
-                        otherNodes.add(nodesMap.get(new Coordinate(1, i)));
-                    }
+        return weight;
+    }
+
+    /**
+     * List every edge that could exist on a board of this size, in compressed sparse row form. Hexes have standard edges to adjacent hexes and bridges to the hexes two apart.
+     * The start and end nodes have edges to the hexes on their side of the board, and bridges to the hexes one row in whose two neighbours on that side are the carrier.
+     */
+    private void buildEdges(){
+        int cells = geometry.getCells();
+        int[] targets = new int[geometry.getAdjacentStart(cells) + geometry.getBridgeStart(cells) + 8 * (xSize + ySize)];
+        byte[] types = new byte[targets.length];
+        int[] carriers = new int[targets.length * 2];
+        edgeStart = new int[cells + 3];
+        int count = 0;
+
+        for(int hex = 0; hex < cells; hex++){
+            edgeStart[hex] = count;
+            for(int i = geometry.getAdjacentStart(hex); i < geometry.getAdjacentStart(hex + 1); i++){
+                count = addEdge(targets, types, carriers, count, geometry.getAdjacent(i), EdgeType.STANDARD, -1, -1);
+            }
+            if(useBridges){
+                for(int i = geometry.getBridgeStart(hex); i < geometry.getBridgeStart(hex + 1); i++){
+                    count = addEdge(targets, types, carriers, count, geometry.getBridge(i), EdgeType.BRIDGE, geometry.getBridgeCarrier(i, 0), geometry.getBridgeCarrier(i, 1));
                 }
             }
-            else if(node == endNode){
-                //Create list of nodes that bridges exist for
-                if(colour == Piece.RED){
-                    for(int i = 1; i < xSize - 1; i++){
-                        otherNodes.add(nodesMap.get(new Coordinate(i, xSize - 2)));
-                    }
+            for(int node = startNode; node <= endNode; node++){
+                if(isEdgeHex(node, hex)){
+                    count = addEdge(targets, types, carriers, count, node, EdgeType.STARTEND, -1, -1);
                 }
-                if(colour == Piece.BLUE){
-                    for(int i = 1; i < ySize - 1; i++){
-                        otherNodes.add(nodesMap.get(new Coordinate(ySize - 2, i)));
-                    }
+                else if(useBridges && isBridgeHex(node, hex)){
+                    count = addEdge(targets, types, carriers, count, node, EdgeType.BRIDGE, edgeCarrier(node, hex, 0), edgeCarrier(node, hex, 1));
                 }
             }
-            //Run the bridge code for the nodes listed
-            for(Node node2 : otherNodes){
-                ArrayList<Node> connectedNodes = new ArrayList<Node>();
-                for(Edge edge : node.getConnectedEdges()){
-                    if(edge.getType() == EdgeType.STARTEND){
-                        Node otherNode = edge.getOtherNode(node);
-                        if(otherNode.getType() == NodeType.UNSET){
-                            connectedNodes.add(edge.getOtherNode(node));
-                        }
-                    }
+        }
+        for(int node = startNode; node <= endNode; node++){
+            edgeStart[node] = count;
+            for(int hex = 0; hex < cells; hex++){
+                if(isEdgeHex(node, hex)){
+                    count = addEdge(targets, types, carriers, count, hex, EdgeType.STARTEND, -1, -1);
                 }
-                int i = 0;
-                for(Edge edge : node2.getConnectedEdges()){
-                    if(edge.getType() == EdgeType.STANDARD){
-                        Node otherNode = edge.getOtherNode(node2);
-                        if(otherNode.getType() == NodeType.UNSET){
-                            if(connectedNodes.contains(edge.getOtherNode(node2))){
-                                i++;
-                            }
-                        }
-                    }
+                else if(useBridges && isBridgeHex(node, hex)){
+                    count = addEdge(targets, types, carriers, count, hex, EdgeType.BRIDGE, edgeCarrier(node, hex, 0), edgeCarrier(node, hex, 1));
                 }
-                if(i == 2){
-                    try{
-                        if(node.getType() == NodeType.STARTEND && node2.getType() == NodeType.PLAYER){
-                            new Edge(node, node2, EdgeType.BRIDGE, Graph.OBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                        }
-                        else if(node.getType() == NodeType.UNSET && node2.getType() == NodeType.UNSET){
-                            new Edge(node, node2, EdgeType.BRIDGE, Graph.UNOBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                        }
-                        else if(node.getType() == NodeType.UNSET && node2.getType() == NodeType.PLAYER){
-                            new Edge(node, node2, EdgeType.BRIDGE, Graph.SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER);
+            }
+        }
+        edgeStart[cells + 2] = count;
+        edgeTargets = Arrays.copyOf(targets, count);
+        edgeTypes = Arrays.copyOf(types, count);
+        edgeCarriers = Arrays.copyOf(carriers, count * 2);
+        edgeWeights = new int[count];
 
-                        }
-                        else if(node2.getType() == NodeType.UNSET && node.getType() == NodeType.STARTEND){
-                            new Edge(node, node2, EdgeType.BRIDGE, Graph.SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER);
-                        }
-                    }
-                    catch(NodeWeightNotSetException e){
-                        e.printStackTrace();
+        //Find each edge in the other direction
+        edgeReverse = new int[count];
+        for(int node = 0; node < cells + 2; node++){
+            for(int e = edgeStart[node]; e < edgeStart[node + 1]; e++){
+                int target = edgeTargets[e];
+                for(int r = edgeStart[target]; r < edgeStart[target + 1]; r++){
+                    if(edgeTargets[r] == node){
+                        edgeReverse[e] = r;
                     }
                 }
             }
         }
-        return true;
     }
 
     /**
-     * Calculate the distance to the endNode from the startNode using djikstra's algorithm.
+     * Add an edge to the arrays being built by buildEdges.
      *
-     * @return boolean indicating successful operation
+     * @param targets The node each edge goes to
+     * @param types The type of each edge
+     * @param carriers The carrier of each edge
+     * @param count The number of edges so far
+     * @param target The node the new edge goes to
+     * @param type The type of the new edge
+     * @param carrier1 The first hex of the carrier for a bridge, otherwise -1
+     * @param carrier2 The second hex of the carrier for a bridge, otherwise -1
+     *
+     * @return The new number of edges
      */
-    private boolean calculateDistance(){
-        /*
-        This bit of the code is quite slow as it's called so often in the AI. In an effort to speed it up, it contains some optimisations that can make it hard to read.
-        For each loops have been replaced with for loops which deincrement to allow for comparison to 0 as opposed to a variable
-        Nodes are added to lists at the appropriate place to maintain sorting, to remove the need for repeated full sorting.
-         */
-        //The nodes to visit
-        ArrayList<Node> testingNodes = new ArrayList<Node>();
-        //The nodes already visisted
-        ArrayList<Node> testedNodes = new ArrayList<Node>();
-        //Never visit endNode
-        testedNodes.add(endNode);
-        //Start with startNode
-        testingNodes.add(startNode);
-        //It takes 0 distance to get from startNode to startNode
-        startNode.setDistance(0.0);
-        //Keep looking until found (returns) or runs out of nodes to test
-        while(testingNodes.size() > 0){
-            //get the top node, add it to testedNodes and remove it
-            Node testingNode = testingNodes.get(0);
-            testedNodes.add(testingNode);
-            testingNodes.remove(0);
-            //Look at the nodes it's connected to
-            ArrayList<Edge> edges = testingNode.getConnectedEdges();
-            for(int i = edges.size(); i > 0; --i){
-                //Try updating their distance
-                Node newNode = edges.get(i - 1).addDistance(testingNode);
-                //Test the connected node next if it hasn't already been tested
-                if(newNode != null && !testingNodes.contains(newNode) && !testedNodes.contains(newNode)){
-                    //work through the testingNodes list and place the new node in the correct location
-                    int j = 0;
-                    int size = testingNodes.size();
-                    boolean found = false;
-                    while(!found && j < size){
-                        if(newNode.compareTo(testingNodes.get(j)) != 1){
-                            testingNodes.add(j, newNode);
-                            found = true;
-                        }
-                        ++j;
-                    }
-                    if(!found){
-                        testingNodes.add(newNode);
-                    }
-                }
-            }
-        }
-        return true;
+    private int addEdge(int[] targets, byte[] types, int[] carriers, int count, int target, EdgeType type, int carrier1, int carrier2){
+        targets[count] = target;
+        types[count] = (byte) type.ordinal();
+        carriers[2 * count] = carrier1;
+        carriers[2 * count + 1] = carrier2;
+        return count + 1;
     }
 
     /**
-     * @return The end node
+     * @param node startNode or endNode
+     * @param hex The hex to check
+     *
+     * @return boolean indicating whether the hex is on the node's side of the board, so has a standard edge to it
      */
-    public Node getEndNode(){
-        return endNode;
+    private boolean isEdgeHex(int node, int hex){
+        if(colour == Piece.RED){
+            return geometry.getY(hex) == (node == startNode ? 0 : ySize - 1);
+        }
+        return geometry.getX(hex) == (node == startNode ? 0 : xSize - 1);
     }
 
     /**
-     * Update the endNode to a new value. Useful for calculating the distance across parts of the graph.
+     * @param node startNode or endNode
+     * @param hex The hex to check
      *
-     * @param endNode The endNode to set to.
+     * @return boolean indicating whether the hex is one row in from the node's side of the board, and not at either end of the row, so can have a bridge to the node
      */
-    public void setEndNode(Node endNode){
-        this.endNode = endNode;
+    private boolean isBridgeHex(int node, int hex){
+        int x = geometry.getX(hex);
+        int y = geometry.getY(hex);
+        if(colour == Piece.RED){
+            return ySize > 1 && y == (node == startNode ? 1 : ySize - 2) && x >= 1 && x < xSize - 1;
+        }
+        return xSize > 1 && x == (node == startNode ? 1 : xSize - 2) && y >= 1 && y < ySize - 1;
     }
 
     /**
-     * @return The map of coordinates to nodes
+     * Find the carrier of a bridge between the start or end node and a hex - the two hexes adjacent to the hex that are on the node's side of the board.
+     *
+     * @param node startNode or endNode
+     * @param hex A hex that passes isBridgeHex
+     * @param carrier 0 or 1
+     *
+     * @return One of the two hexes in the carrier
      */
-    public HashMap<Coordinate, Node> getNodesMap(){
-        return nodesMap;
+    private int edgeCarrier(int node, int hex, int carrier){
+        int found = 0;
+        for(int i = geometry.getAdjacentStart(hex); i < geometry.getAdjacentStart(hex + 1); i++){
+            int adjacent = geometry.getAdjacent(i);
+            if(isEdgeHex(node, adjacent)){
+                if(found == carrier){
+                    return adjacent;
+                }
+                found++;
+            }
+        }
+        return -1;
     }
 
     /**
-     * Set the nodes map to a new map of coordinate to nodes
+     * Calculate the distance to the endNode from the startNode using djikstra's algorithm. The nodes still to visit are kept in an indexed heap, so each step takes O(log V) and a
+     * node whose distance drops is moved up the heap rather than added again. Stops as soon as the endNode is reached, since its distance can't change after that.
      *
-     * @param nodesMap the nodes map to set
+     * @return boolean indicating successful operation
+     */
+    private boolean calculateDistance(){
+        reset();
+        frontier.clear();
+
+        //It takes 0 distance to get from startNode to startNode
+        distances[startNode] = 0;
+        reachedEpochs[startNode] = epoch;
+        frontier.offer(startNode, 0);
+        while(!frontier.isEmpty()){
+            //The closest node not yet visited - its distance is final
+            int testingNode = frontier.poll();
+            visitedEpochs[testingNode] = epoch;
+            int distance = distances[testingNode];
+            int chainSize = 0;
+            chain[chainSize++] = testingNode;
+            while(chainSize > 0){
+                int chainNode = chain[--chainSize];
+                if(chainNode == endNode){
+                    return true;
+                }
+
+                //Look at the nodes the chain is connected to, and try updating their distance
+                for(int e = edgeStart[chainNode]; e < edgeStart[chainNode + 1]; e++){
+                    int weight = edgeWeights[e];
+                    int newNode = edgeTargets[e];
+                    if(weight == NO_EDGE || visitedEpochs[newNode] == epoch){
+                        continue;
+                    }
+                    if(weight == 0){
+                        distances[newNode] = distance;
+                        reachedEpochs[newNode] = epoch;
+                        visitedEpochs[newNode] = epoch;
+                        chain[chainSize++] = newNode;
+                    }
+                    else if(distance + weight < distanceTo(newNode)){
+                        distances[newNode] = distance + weight;
+                        reachedEpochs[newNode] = epoch;
+                        frontier.offer(newNode, distances[newNode]);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Work out the lower bound on the distance to the endNode from each line of hexes, for getGoalDistance. Every path to the endNode has to cross each line still ahead of it,
+     * either through a hex in that line - paying half the hex's weight on the way in and half on the way out - or over it with a bridge, paying the bridge's modifier. So each
+     * line costs at least the smaller of its cheapest hex and the cheapest bridge that could cross it. Costs are rounded down to even numbers so that halving them stays exact, and
+     * each hex counts half the cost of its own line, which keeps the heuristic consistent.
+     * <p>
+     * Only the lines with a hex that has changed since the last call are looked at again, so a search that changes a hex or two between queries doesn't go over the whole board.
      */
-    public void setNodesMap(HashMap<Coordinate, Node> nodesMap){
-        this.nodesMap = nodesMap;
+    private void calculateHeuristics(){
+        int lines = lineHeuristics.length;
+        int length = colour == Piece.RED ? xSize : ySize;
+        for(int line = 0; line < lines; line++){
+            if(!linesChanged[line]){
+                continue;
+            }
+            linesChanged[line] = false;
+            lineHexCosts[line] = Integer.MAX_VALUE;
+            linePlayers[line] = false;
+            for(int i = 0; i < length; i++){
+                int hex = colour == Piece.RED ? geometry.getHex(i, line) : geometry.getHex(line, i);
+                if(types[hex] != NodeType.OPPONENT){
+                    lineHexCosts[line] = Math.min(lineHexCosts[line], Math.max(0, weights[hex]));
+                    linePlayers[line] |= types[hex] == NodeType.PLAYER;
+                }
+            }
+        }
+        for(int line = 0; line < lines; line++){
+            lineCosts[line] = lineHexCosts[line];
+            if(useBridges){
+                //A bridge over this line costs the obtained modifier only if both ends can be obtained - the start and end nodes count as obtained
+                boolean obtainedBefore = line == 0 || linePlayers[line - 1];
+                boolean obtainedAfter = line == lines - 1 || linePlayers[line + 1];
+                int bridgeCost;
+                if(obtainedBefore && obtainedAfter){
+                    bridgeCost = toFixed(OBTAINED_BRIDGE_WEIGHT_MODIFIER);
+                }
+                else{
+                    bridgeCost = Math.min(toFixed(SEMI_OBTAINED_BRIDGE_WEIGHT_MODIFIER), toFixed(UNOBTAINED_BRIDGE_WEIGHT_MODIFIER));
+                }
+                lineCosts[line] = Math.min(lineCosts[line], Math.max(0, bridgeCost));
+            }
+            if(lineCosts[line] == Integer.MAX_VALUE){
+                lineCosts[line] = 0;
+            }
+            lineCosts[line] &= ~1;
+        }
+        int remaining = 0;
+        for(int line = lines - 1; line >= 0; line--){
+            lineHeuristics[line] = remaining + lineCosts[line] / 2;
+            remaining += lineCosts[line];
+        }
+        startHeuristic = remaining;
     }
 
     /**
-     * @return The start node
+     * @param node The node
+     *
+     * @return The lower bound on the distance from the node to the endNode, as worked out by calculateHeuristics
      */
-    public Node getStartNode(){
-        return startNode;
+    private int heuristic(int node){
+        if(node == startNode){
+            return startHeuristic;
+        }
+        if(node == endNode){
+            return 0;
+        }
+        return lineHeuristics[getLine(node)];
     }
 
     /**
-     * Update the startNode to a new value. Useful for calculating the distance across parts of the graph.
+     * @param hex The hex
      *
-     * @param startNode The startNode to set to.
+     * @return The row of the hex for Piece.RED, or the column for Piece.BLUE - how far it is from the startNode's side
      */
-    public void setStartNode(Node startNode){
-        this.startNode = startNode;
+    private int getLine(int hex){
+        return colour == Piece.RED ? geometry.getY(hex) : geometry.getX(hex);
     }
 }
@@ -0,0 +1,73 @@
+/**
+ * A graph of a board that is built once and then never changed, so that it can be shared between threads. The base works out the shortest paths on the board when it is created,
+ * and each thread searches variations of the board through its own overlay from createOverlay, which reads the base's nodes and edges until it changes one and keeps its own
+ * distances.
+ * <p>
+ * The layout of the graph - the edges, their types and carriers, which is most of its memory - is only ever held by the base. An overlay does hold O(nodes + edges) of its own:
+ * its distances and shortest path tree, the record of changed edges that the repair works from, and, from its first change, a copy of the node and edge weights. Those are the
+ * arrays the innermost loops of the searches read for every edge, so they are kept as plain arrays rather than a sparse map of changes in front of the base, which would put a
+ * lookup on every edge relaxed. The search arrays would be needed per thread whatever the weights were kept in, and there is only one overlay per worker thread per move, so the
+ * copy is made a handful of times per move rather than once per position searched.
+ *
+ * @author Steven Lowes
+ */
+public class GraphBase{
+    /**
+     * The graph, never changed or queried again after the constructor.
+     */
+    private final Graph graph;
+
+    /**
+     * The fixed point distance across the board, or Graph.NO_PATH.
+     */
+    private final int distance;
+
+    /**
+     * The Zobrist hash of the board.
+     */
+    private final long hash;
+
+    /**
+     * Build the graph of a board.
+     *
+     * @param boardView The board to represent as a graph
+     * @param colour The colour of the player the graph should represent
+     */
+    public GraphBase(BoardSnapshot boardView, Piece colour){
+        graph = new Graph();
+        graph.populateGraph(boardView, colour);
+        graph.setDynamic(true);
+        distance = graph.getFixedDistance();
+        hash = boardView.getHash();
+    }
+
+    /**
+     * @return The Zobrist hash of the board the graph was built from
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /**
+     * @return The fixed point distance from the startNode to the endNode, or Graph.NO_PATH if the endNode can't be reached
+     */
+    public int getFixedDistance(){
+        return distance;
+    }
+
+    /**
+     * @return The distance from the startNode to the endNode, or null if the endNode can't be reached
+     */
+    public Double getDistance(){
+        return Graph.toDistance(distance);
+    }
+
+    /**
+     * Create a graph that starts the same as this one and can be changed and searched without affecting it. Safe to call from any thread.
+     *
+     * @return A new overlay of this graph, in dynamic mode
+     */
+    public Graph createOverlay(){
+        return new Graph(graph);
+    }
+}
@@ -5,7 +5,7 @@ import java.awt.Dimension;
  *
  * @author Steven Lowes
  */
-public class HumanPlayer implements PlayerInterface{
+public class HumanPlayer implements SnapshotPlayerInterface{
 
     /**
      * The pixel size of the display when it is created
@@ -69,7 +69,34 @@ public class HumanPlayer implements PlayerInterface{
         if(!found){
             throw new NoValidMovesException();
         }
+        return askForMove(boardView);
+    }
 
+    /**
+     * Asks the player to make a move, and returns it once made. The snapshot knows how many spaces are free, so the board doesn't need to be scanned to check there is a move.
+     *
+     * @param snapshot the current state of the board
+     *
+     * @return The move that the human player wishes to make. Contains either coordinates or a concession.
+     *
+     * @throws NoValidMovesException There's nowhere on the board left to go - no locations are equal to Piece.UNSET
+     */
+    public MoveInterface makeMove(BoardSnapshot snapshot) throws NoValidMovesException{
+        if(snapshot.getFreeCount() == 0){
+            throw new NoValidMovesException();
+        }
+        //The display changes the board it is given, so it needs its own copy
+        return askForMove(snapshot.toBoardView());
+    }
+
+    /**
+     * Ask the display for a move, and show the move on the display once made
+     *
+     * @param boardView the current state of the board, which is changed to include the move
+     *
+     * @return The move that the human player wishes to make. Contains either coordinates or a concession.
+     */
+    private MoveInterface askForMove(Piece[][] boardView){
         if(display == null){
             //initialise the display if it hasn't yet been initialised
             display = new GUIFrame(boardView, screenSize);
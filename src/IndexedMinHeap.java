@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the integers 0 to capacity - 1, each with an int key, used by Graph to pick the next node in djikstra's algorithm. The position of each integer in the heap
+ * is stored, so an integer whose key has gone down can be moved up the heap (decrease-key) instead of being added again, and checking whether an integer is queued is constant
+ * time.
+ *
+ * @author Steven Lowes
+ */
+public class IndexedMinHeap{
+    /**
+     * The queued integers. The children of heap[i] are heap[2i + 1] and heap[2i + 2], and neither has a smaller key than it.
+     */
+    private final int[] heap;
+
+    /**
+     * The position of each integer in heap, or -1 if it isn't queued.
+     */
+    private final int[] positions;
+
+    /**
+     * The key of each queued integer.
+     */
+    private final int[] keys;
+
+    /**
+     * The number of queued integers.
+     */
+    private int size;
+
+    /**
+     * Create an empty heap.
+     *
+     * @param capacity The number of integers that can be queued - from 0 to capacity - 1
+     */
+    public IndexedMinHeap(int capacity){
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * @return boolean indicating whether there are no integers queued
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * @param element The integer to check
+     *
+     * @return boolean indicating whether the integer is queued
+     */
+    public boolean contains(int element){
+        return positions[element] != -1;
+    }
+
+    /**
+     * Queue an integer, or lower its key if it is already queued with a larger one.
+     *
+     * @param element The integer to queue
+     * @param key The key to queue it with
+     */
+    public void offer(int element, int key){
+        if(positions[element] == -1){
+            heap[size] = element;
+            positions[element] = size;
+            keys[element] = key;
+            size++;
+            siftUp(size - 1);
+        }
+        else if(key < keys[element]){
+            keys[element] = key;
+            siftUp(positions[element]);
+        }
+    }
+
+    /**
+     * Remove and return the queued integer with the smallest key.
+     *
+     * @return The integer with the smallest key
+     */
+    public int poll(){
+        int top = heap[0];
+        size--;
+        if(size > 0){
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        positions[top] = -1;
+        return top;
+    }
+
+    /**
+     * Remove every queued integer.
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Move the integer at a position up until its parent's key is no larger than its own.
+     *
+     * @param index The position of the integer
+     */
+    private void siftUp(int index){
+        int element = heap[index];
+        int key = keys[element];
+        while(index > 0){
+            int parent = (index - 1) >>> 1;
+            if(keys[heap[parent]] <= key){
+                break;
+            }
+            heap[index] = heap[parent];
+            positions[heap[index]] = index;
+            index = parent;
+        }
+        heap[index] = element;
+        positions[element] = index;
+    }
+
+    /**
+     * Move the integer at a position down until neither child has a smaller key.
+     *
+     * @param index The position of the integer
+     */
+    private void siftDown(int index){
+        int element = heap[index];
+        int key = keys[element];
+        while(true){
+            int child = 2 * index + 1;
+            if(child >= size){
+                break;
+            }
+            if(child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]){
+                child++;
+            }
+            if(keys[heap[child]] >= key){
+                break;
+            }
+            heap[index] = heap[child];
+            positions[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = element;
+        positions[element] = index;
+    }
+}
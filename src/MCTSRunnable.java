@@ -1,5 +1,4 @@
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -27,42 +26,47 @@ public class MCTSRunnable implements Runnable{
     /**
      * The board state before making a move
      */
-    private final Piece[][] boardView;
+    private final BoardSnapshot boardView;
 
     /**
-     * Maps the first move to the moves available for the second move
+     * Lists which moves are available to be made
      */
-    private final HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap;
+    private final ArrayList<Coordinate> allFreeSpaces;
 
     /**
-     * Lists which moves are available to be made
+     * Set by stop to end the simulations. Volatile, as it is set from another thread.
      */
-    private final ArrayList<Coordinate> allFreeSpaces;
+    private volatile boolean stopped;
 
     /**
      * Create a new MCTSRunnable, setting the fields to the values provided by the parameters.
      *
      * @param boardView The current state of the board
      * @param colour The colour of the AI
-     * @param freeSpacesMap Maps the first move to the moves available for the second move
      * @param allFreeSpaces Lists which moves are available to be made
      */
-    public MCTSRunnable(Piece[][] boardView, Piece colour, HashMap<Coordinate, ArrayList<Coordinate>> freeSpacesMap, List<Coordinate> allFreeSpaces){
+    public MCTSRunnable(BoardSnapshot boardView, Piece colour, List<Coordinate> allFreeSpaces){
         this.colour = colour;
-        plays = new int[boardView.length][boardView[0].length];
-        wins = new int[boardView.length][boardView[0].length];
+        plays = new int[boardView.getSizeX()][boardView.getSizeY()];
+        wins = new int[boardView.getSizeX()][boardView.getSizeY()];
         this.boardView = boardView;
         this.allFreeSpaces = new ArrayList<Coordinate>(allFreeSpaces);
-        this.freeSpacesMap = freeSpacesMap;
     }
 
     /**
-     * Begin calculation, checking isInterrupted() and stopping when it returns true
+     * Begin calculation, stopping once stop is called or the thread is interrupted
      */
     public void run(){
         simulateGames(boardView);
     }
 
+    /**
+     * Ask the simulations to stop, after the round of games in progress.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
     /**
      * @return The number of games simulated for each first move position
      */
@@ -102,82 +106,70 @@ public class MCTSRunnable implements Runnable{
     }
 
     /**
-     * Simulate games until the thread is interrupted
+     * Simulate games until stop is called or the thread is interrupted. Each game is played by copying the red pieces into a reused bitset and adding a red piece for every free
+     * hex red gets when they are filled at random - blue gets the rest, so their pieces don't need storing. The winner of the full board is then found with
+     * Utility.fullBoardWinner, using the flood fill of a BitBoard. Nothing is allocated once the games have started.
      *
      * @param boardView The current state of the board.
      */
-    private void simulateGames(Piece[][] boardView){
-        List<Coordinate> freeSpaces = allFreeSpaces;
-
-        while(!Thread.currentThread().isInterrupted()){ //The threads are interrupted when the timeGoal is up
-            for(Coordinate coords : freeSpaces){
-                int x = coords.getX();
-                int y = coords.getY();
-
-                int xSize = boardView.length;
-                int ySize = boardView[0].length;
-                Piece[][] newBoard = new Piece[xSize][ySize];
-                //Deep copy the boardView
-                for(int i = 0; i < xSize; i++){
-                    System.arraycopy(boardView[i], 0, newBoard[i], 0, ySize);
-                }
-
-                newBoard[x][y] = colour;
-                //Simulate a game
-                newBoard = playGame(newBoard, new Coordinate(x, y));
-                try{
-                    if(Utility.playerWon(newBoard, colour)){
-                        wins[x][y] += 1;
-                    }
-                }
-                catch(InvalidColourException e){
-                    System.out.println("Computer player appears to be set as invalid colour:" + colour);
-                    e.printStackTrace();
-                }
-                plays[x][y] += 1;
-            }
+    private void simulateGames(BoardSnapshot boardView){
+        BitBoard board = new BitBoard();
+        try{
+            board.setBoardView(boardView);
         }
-    }
+        catch(InvalidBoardSizeException | BoardAlreadySizedException e){
+            e.printStackTrace();
+            return;
+        }
+        int sizeX = boardView.getSizeX();
+        int sizeY = boardView.getSizeY();
+        BoardGeometry geometry = BoardGeometry.get(sizeX, sizeY);
 
-    /**
-     * Play out a game randomly until every position is filled.
-     *
-     * @param boardView The current state of the board.
-     *
-     * @return The final state of the board.
-     */
-    private Piece[][] playGame(Piece[][] boardView, Coordinate firstMove){
-        //Get free spaces
-        List<Coordinate> freeSpaces;
-        freeSpaces = new ArrayList<Coordinate>(freeSpacesMap.get(firstMove));
+        //The red pieces before any moves are made
+        long[] startRed = board.getPieces(Piece.RED);
 
-        //fill empty spaces
-        ThreadLocalRandom rand = ThreadLocalRandom.current();
-        Piece turn = colour;
-        if(turn == Piece.BLUE){
-            turn = Piece.RED;
-        }
-        else{
-            turn = Piece.BLUE;
+        int freeCount = allFreeSpaces.size();
+        int[] freeHexes = new int[freeCount];
+        for(int i = 0; i < freeCount; i++){
+            freeHexes[i] = geometry.getHex(allFreeSpaces.get(i).getX(), allFreeSpaces.get(i).getY());
         }
-        while(freeSpaces.size() > 0){
-            int index = rand.nextInt(freeSpaces.size());
 
-            Coordinate coords = freeSpaces.get(index);
-            boardView[coords.getX()][coords.getY()] = turn;
+        //Which moves are red's - the first, then the odd numbered ones if red is the player, otherwise the even numbered ones
+        boolean playerRed = colour == Piece.RED;
+        int redParity = playerRed ? 1 : 0;
+        long[] red = new long[startRed.length];
+        int[] order = new int[freeCount];
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
 
-            //This is faster than removing the value at index
-            int last = freeSpaces.size() - 1;
-            freeSpaces.set(index, freeSpaces.get(last));
-            freeSpaces.remove(last);
+        while(!stopped && !Thread.currentThread().isInterrupted()){ //The runnables are stopped when the timeGoal is up
+            for(int first = 0; first < freeCount; first++){
+                int firstHex = freeHexes[first];
+                System.arraycopy(startRed, 0, red, 0, red.length);
+                if(playerRed){
+                    red[firstHex >>> 6] |= 1L << firstHex;
+                }
 
-            if(turn == Piece.BLUE){
-                turn = Piece.RED;
-            }
-            else{
-                turn = Piece.BLUE;
+                //The other free hexes, with the first move swapped to the end so it is left out
+                System.arraycopy(freeHexes, 0, order, 0, freeCount);
+                order[first] = order[freeCount - 1];
+
+                //Simulate a game, filling every empty space at random with alternating colours, starting with the opponent
+                for(int i = 0; i < freeCount - 1; i++){
+                    int j = i + rand.nextInt(freeCount - 1 - i);
+                    int hex = order[j];
+                    order[j] = order[i];
+                    if((i & 1) == redParity){
+                        red[hex >>> 6] |= 1L << hex;
+                    }
+                }
+
+                int x = geometry.getX(firstHex);
+                int y = geometry.getY(firstHex);
+                if(Utility.fullBoardWinner(board, red) == colour){
+                    wins[x][y] += 1;
+                }
+                plays[x][y] += 1;
             }
         }
-        return boardView;
     }
 }
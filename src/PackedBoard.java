@@ -0,0 +1,245 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact store of the pieces on a board, using 2 bits per hex packed 32 to a long, for boards too large to hold as a Piece[][] (which costs a reference per hex plus an array
+ * header per row). Hex (x, y) is numbered x * sizeY + y as in BoardGeometry. Rows can be read one at a time with rowIterator, so a large position never needs to be expanded into a
+ * full Piece[][].
+ * <p>
+ * The longs are kept in blocks, and copy and share give the new board every block rather than copying it. The new board copies a shared block before changing it
+ * (copy-on-write), so copying a board costs a reference per block and each change copies at most one block. copy never writes to the board being copied, so a board that no
+ * longer changes, such as the board of a snapshot, can be copied by any number of threads at once. A board that is still going to change is copied with share instead, which
+ * also marks its own blocks as shared so that it copies them before changing them too.
+ *
+ * @author Steven Lowes
+ */
+public class PackedBoard{
+    /**
+     * The value stored for a hex with no piece on it. Also used by engines that keep a board as a byte per hex.
+     */
+    public static final byte EMPTY = 0;
+
+    /**
+     * The value stored for a hex with a red piece on it.
+     */
+    public static final byte RED = 1;
+
+    /**
+     * The value stored for a hex with a blue piece on it.
+     */
+    public static final byte BLUE = 2;
+
+    /**
+     * The number of longs in a block, each holding 32 hexes.
+     */
+    private static final int BLOCK_WORDS = 64;
+
+    /**
+     * The width of the board in hexes.
+     */
+    private final int sizeX;
+
+    /**
+     * The height of the board in hexes.
+     */
+    private final int sizeY;
+
+    /**
+     * The pieces, 2 bits per hex. Hex h is stored in bits 2 * (h % 32) and 2 * (h % 32) + 1 of word h / 32, and word w is blocks[w / BLOCK_WORDS][w % BLOCK_WORDS].
+     */
+    private final long[][] blocks;
+
+    /**
+     * Whether each block is shared with another board, and so must be copied before it is changed.
+     */
+    private final boolean[] blocksShared;
+
+    /**
+     * Create a new empty board.
+     *
+     * @param sizeX The width of the board in hexes
+     * @param sizeY The height of the board in hexes
+     */
+    public PackedBoard(int sizeX, int sizeY){
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        int words = (int) (((long) sizeX * sizeY + 31) >>> 5);
+        blocks = new long[(words + BLOCK_WORDS - 1) / BLOCK_WORDS][BLOCK_WORDS];
+        blocksShared = new boolean[blocks.length];
+    }
+
+    /**
+     * Create a packed copy of a board view.
+     *
+     * @param boardView The board state to copy
+     */
+    public PackedBoard(Piece[][] boardView){
+        this(boardView.length, boardView[0].length);
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                set(i, j, boardView[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Create a board sharing the blocks of another.
+     *
+     * @param board The board to share with
+     */
+    private PackedBoard(PackedBoard board){
+        sizeX = board.sizeX;
+        sizeY = board.sizeY;
+        blocks = board.blocks.clone();
+        blocksShared = new boolean[blocks.length];
+    }
+
+    /**
+     * Copy a board that won't be changed again without copying its pieces. Only the copy is marked as sharing the blocks, so nothing is written to this board. If this board is
+     * changed afterwards the copy sees the change - use share instead.
+     *
+     * @return A board holding the same pieces
+     */
+    public PackedBoard copy(){
+        PackedBoard copy = new PackedBoard(this);
+        for(int i = 0; i < blocks.length; i++){
+            copy.blocksShared[i] = true;
+        }
+        return copy;
+    }
+
+    /**
+     * Copy a board that is still going to be changed without copying its pieces. Both boards are marked as sharing the blocks, so either copies a block before changing it. As
+     * this board is written to, only the thread that changes it may call this.
+     *
+     * @return A board holding the same pieces
+     */
+    public PackedBoard share(){
+        for(int i = 0; i < blocks.length; i++){
+            blocksShared[i] = true;
+        }
+        return copy();
+    }
+
+    /**
+     * @param x The x position
+     * @param y The y position
+     *
+     * @return The piece at the position
+     */
+    public Piece getPiece(int x, int y){
+        return getPiece(x * sizeY + y);
+    }
+
+    /**
+     * @param hex The hex number
+     *
+     * @return The piece on the hex
+     */
+    public Piece getPiece(int hex){
+        int word = hex >>> 5;
+        int bits = (int) (blocks[word / BLOCK_WORDS][word % BLOCK_WORDS] >>> ((hex & 31) << 1)) & 3;
+        if(bits == RED){
+            return Piece.RED;
+        }
+        else if(bits == BLUE){
+            return Piece.BLUE;
+        }
+        return Piece.UNSET;
+    }
+
+    /**
+     * Put a piece on a position, replacing whatever was there.
+     *
+     * @param x The x position
+     * @param y The y position
+     * @param piece The piece to put there - Piece.UNSET clears the position
+     */
+    public void set(int x, int y, Piece piece){
+        int hex = x * sizeY + y;
+        int bits = EMPTY;
+        if(piece == Piece.RED){
+            bits = RED;
+        }
+        else if(piece == Piece.BLUE){
+            bits = BLUE;
+        }
+        int word = hex >>> 5;
+        int block = word / BLOCK_WORDS;
+        //Copy the block first if another board can see it
+        if(blocksShared[block]){
+            blocks[block] = blocks[block].clone();
+            blocksShared[block] = false;
+        }
+        int shift = (hex & 31) << 1;
+        long[] words = blocks[block];
+        words[word % BLOCK_WORDS] = (words[word % BLOCK_WORDS] & ~(3L << shift)) | ((long) bits << shift);
+    }
+
+    /**
+     * @return The width of the board in hexes
+     */
+    public int getSizeX(){
+        return sizeX;
+    }
+
+    /**
+     * @return The height of the board in hexes
+     */
+    public int getSizeY(){
+        return sizeY;
+    }
+
+    /**
+     * @return The pieces as a new Piece[][], which is safe to change
+     */
+    public Piece[][] toBoardView(){
+        Piece[][] boardView = new Piece[sizeX][sizeY];
+        copyInto(boardView);
+        return boardView;
+    }
+
+    /**
+     * Copy the pieces into an existing array of the same size, so that the array can be reused.
+     *
+     * @param boardView The array to copy into
+     */
+    public void copyInto(Piece[][] boardView){
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                boardView[i][j] = getPiece(i, j);
+            }
+        }
+    }
+
+    /**
+     * Read the board one row at a time. Row x holds the pieces at (x, 0) to (x, sizeY - 1), the same as boardView[x] in a Piece[][]. Each row is a new array, so only one row of
+     * Piece values exists at a time unless the caller keeps them.
+     *
+     * @return An iterator over the rows of the board
+     */
+    public Iterator<Piece[]> rowIterator(){
+        return new Iterator<Piece[]>(){
+            /**
+             * The next row to return
+             */
+            private int x = 0;
+
+            public boolean hasNext(){
+                return x < sizeX;
+            }
+
+            public Piece[] next(){
+                if(x >= sizeX){
+                    throw new NoSuchElementException();
+                }
+                Piece[] row = new Piece[sizeY];
+                for(int j = 0; j < sizeY; j++){
+                    row[j] = getPiece(x, j);
+                }
+                x++;
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * The outcome of trying to place a piece with SnapshotBoardInterface.tryPlace. Every result other than PLACED and CONCEDED matches one of the exceptions thrown by placePiece, so
+ * callers that try a lot of moves can check the result instead of catching exceptions.
+ *
+ * @author Steven Lowes
+ */
+public enum PlaceResult{
+    /**
+     * The piece was placed and the turn passed to the other player.
+     */
+    PLACED,
+
+    /**
+     * The player conceded, so the other player has won.
+     */
+    CONCEDED,
+
+    /**
+     * It isn't the colour's turn, or the colour isn't Piece.RED or Piece.BLUE. Matches InvalidColourException.
+     */
+    WRONG_TURN,
+
+    /**
+     * The board size hasn't been set. Matches NoBoardDefinedException.
+     */
+    NO_BOARD,
+
+    /**
+     * The position is off the board. Matches InvalidPositionException.
+     */
+    INVALID_POSITION,
+
+    /**
+     * There is already a piece at the position. Matches PositionAlreadyTakenException.
+     */
+    POSITION_TAKEN
+}
@@ -27,6 +27,13 @@ public class PotentialMove{
      */
     private Double oppDistance;
 
+    /**
+     * The value in fixed point, if the move was created from fixed point distances. Kept so that moves with equal values always compare equal.
+     * <p>
+     * Default: null
+     */
+    private Integer fixedValue;
+
     /**
      * Create a new PotentialMove and initalise all fields with the parameters passed.
      *
@@ -43,6 +50,21 @@ public class PotentialMove{
         this.oppDistance = oppDistance;
     }
 
+    /**
+     * Create a new PotentialMove from fixed point distances, as returned by Graph.getFixedDistance.
+     *
+     * @param firstMove The first move to be made
+     * @param secondMove The second move to be made (made by the Opponent)
+     * @param aiDistance The fixed point distance for the AI once both moves are made
+     * @param oppDistance The fixed point distance for the Opponent once both moves are made
+     */
+    public PotentialMove(Coordinate firstMove, Coordinate secondMove, int aiDistance, int oppDistance){
+        this(firstMove, secondMove, Graph.toDistance(aiDistance), Graph.toDistance(oppDistance));
+        if(aiDistance != Graph.NO_PATH && oppDistance != Graph.NO_PATH){
+            fixedValue = oppDistance - aiDistance;
+        }
+    }
+
     /**
      * @return String in style: "firstMove secondMove value"
      */
@@ -60,6 +82,10 @@ public class PotentialMove{
         else if(aiDistance == null){
             return Double.NEGATIVE_INFINITY;
         }
+        else if(fixedValue != null){
+            //Dividing the exact difference means equal values are always equal doubles
+            return (double) fixedValue / Graph.FIXED_POINT_SCALE;
+        }
         else{
             //high values are best for AI, low for opponent
             return oppDistance - aiDistance;
@@ -138,6 +164,7 @@ public class PotentialMove{
      */
     public void setAiDistance(Double aiDistance){
         this.aiDistance = aiDistance;
+        fixedValue = null;
     }
 
     /**
@@ -154,6 +181,7 @@ public class PotentialMove{
      */
     public void setOppDistance(Double oppDistance){
         this.oppDistance = oppDistance;
+        fixedValue = null;
     }
 
     /**
@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+
+/**
+ * A board for AI searches, where moves are made with play and taken back with undo rather than by copying the board. Hexes are numbered x * sizeY + y. Everything derived from
+ * the board - the free hexes, the Zobrist hash and the graphs of both players, which hold how the pieces connect - is changed by play and put back by undo from a stack of the
+ * moves made, so a search can explore as many positions as it likes without copying anything.
+ * <p>
+ * The free hexes and the hash are put back in constant time. The graphs are put back with Graph.rollback, which only undoes the changes the move made, so is constant time for
+ * each change.
+ * <p>
+ * Players alternate, starting with the player the graphs were made for. Moves are not checked - it is up to the caller to only play free hexes.
+ *
+ * @author Steven Lowes
+ */
+public class SearchBoard{
+    /**
+     * The graph of the board for the player who moves first.
+     */
+    private final Graph playerGraph;
+
+    /**
+     * The graph of the board for the other player.
+     */
+    private final Graph opponentGraph;
+
+    /**
+     * The colours of the player who moves first and the other player.
+     */
+    private final Piece playerColour, opponentColour;
+
+    /**
+     * The height of the board, for converting between hex numbers and coordinates.
+     */
+    private final int sizeY;
+
+    /**
+     * The hexes that are free.
+     */
+    private final FreeCellSet free;
+
+    /**
+     * The Zobrist hash of the board.
+     */
+    private long hash;
+
+    /**
+     * The number of moves played.
+     */
+    private int moveCount;
+
+    /**
+     * For each move, the graph checkpoints to roll back to.
+     */
+    private final int[] playerCheckpoints, opponentCheckpoints;
+
+    /**
+     * For each move, the position in free that the hex was removed from.
+     */
+    private final int[] freePositions;
+
+    /**
+     * For each move, the hash before it was made.
+     */
+    private final long[] hashes;
+
+    /**
+     * Create a board from the graphs of the current position. The graphs are put in dynamic mode, and are changed by play and undo.
+     *
+     * @param playerGraph The graph of the board for the player whose turn it is
+     * @param opponentGraph The graph of the board for the other player
+     * @param freeSpaces Every free space on the board
+     * @param hash The Zobrist hash of the board
+     */
+    public SearchBoard(Graph playerGraph, Graph opponentGraph, ArrayList<Coordinate> freeSpaces, long hash){
+        this.playerGraph = playerGraph;
+        this.opponentGraph = opponentGraph;
+        this.hash = hash;
+        playerColour = playerGraph.getColour();
+        opponentColour = opponentGraph.getColour();
+        playerGraph.setDynamic(true);
+        opponentGraph.setDynamic(true);
+        sizeY = playerGraph.getSizeY();
+        int cells = playerGraph.getSizeX() * sizeY;
+
+        //Start with every hex free, then take out the ones that aren't
+        free = new FreeCellSet(cells);
+        boolean[] isFree = new boolean[cells];
+        for(Coordinate coords : freeSpaces){
+            isFree[getHex(coords)] = true;
+        }
+        for(int hex = 0; hex < cells; hex++){
+            if(!isFree[hex]){
+                free.remove(hex);
+            }
+        }
+
+        playerCheckpoints = new int[cells];
+        opponentCheckpoints = new int[cells];
+        freePositions = new int[cells];
+        hashes = new long[cells];
+    }
+
+    /**
+     * Place a piece for the player whose turn it is.
+     *
+     * @param hex The hex to play, which must be free
+     */
+    public void play(int hex){
+        boolean playerMove = isPlayerTurn();
+        playerCheckpoints[moveCount] = playerGraph.checkpoint();
+        opponentCheckpoints[moveCount] = opponentGraph.checkpoint();
+        freePositions[moveCount] = free.remove(hex);
+        hashes[moveCount] = hash;
+        hash ^= Zobrist.key(hex, playerMove ? playerColour : opponentColour);
+        moveCount++;
+        try{
+            if(playerMove){
+                playerGraph.changeNode(hex, NodeType.PLAYER, Graph.PLAYER_WEIGHT);
+                opponentGraph.changeNode(hex, NodeType.OPPONENT, null);
+            }
+            else{
+                playerGraph.changeNode(hex, NodeType.OPPONENT, null);
+                opponentGraph.changeNode(hex, NodeType.PLAYER, Graph.PLAYER_WEIGHT);
+            }
+        }
+        catch(InvalidPositionException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Take back the last move played.
+     */
+    public void undo(){
+        moveCount--;
+        playerGraph.rollback(playerCheckpoints[moveCount]);
+        opponentGraph.rollback(opponentCheckpoints[moveCount]);
+        free.restore(freePositions[moveCount]);
+        hash = hashes[moveCount];
+    }
+
+    /**
+     * @return boolean indicating whether the next move is made by the player the board was created for
+     */
+    public boolean isPlayerTurn(){
+        return (moveCount & 1) == 0;
+    }
+
+    /**
+     * @return The number of moves played and not undone
+     */
+    public int getMoveCount(){
+        return moveCount;
+    }
+
+    /**
+     * @return The number of free hexes
+     */
+    public int getFreeCount(){
+        return free.size();
+    }
+
+    /**
+     * @param position A position from 0 to getFreeCount() - 1
+     *
+     * @return The free hex at the position. Positions change when moves are played.
+     */
+    public int getFree(int position){
+        return free.get(position);
+    }
+
+    /**
+     * @return The Zobrist hash of the board
+     */
+    public long getHash(){
+        return hash;
+    }
+
+    /**
+     * @param coords The coordinates of a hex
+     *
+     * @return The hex number, x * sizeY + y
+     */
+    public int getHex(Coordinate coords){
+        return coords.getX() * sizeY + coords.getY();
+    }
+
+    /**
+     * @param hex A hex number
+     *
+     * @return The coordinates of the hex
+     */
+    public Coordinate getCoordinate(int hex){
+        return new Coordinate(hex / sizeY, hex % sizeY);
+    }
+}
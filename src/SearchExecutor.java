@@ -0,0 +1,67 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The executor shared by every AI search, created once and kept for the life of the program so that no threads are started for each move. By default it is a ForkJoinPool with
+ * a worker for each processor. Setting the system property hex.executor to "virtual" runs each task on its own virtual thread instead, where the Java version has them - on older
+ * versions the ForkJoinPool is used anyway. Searches split into fork/join tasks always run on the pool, as only its workers can steal them.
+ *
+ * @author Steven Lowes
+ */
+public class SearchExecutor{
+    /**
+     * The system property that chooses the kind of executor: "forkjoin" or "virtual".
+     */
+    public static final String EXECUTOR_PROPERTY = "hex.executor";
+
+    /**
+     * The shared pool, with a worker for each processor. Its workers are daemon threads, so the pool doesn't keep the program running.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The shared executor.
+     */
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * Static only.
+     */
+    private SearchExecutor(){
+    }
+
+    /**
+     * @return The executor to run AI search tasks on
+     */
+    public static ExecutorService get(){
+        return EXECUTOR;
+    }
+
+    /**
+     * @return The pool to run fork/join tasks on, whatever EXECUTOR_PROPERTY is set to
+     */
+    public static ForkJoinPool getPool(){
+        return POOL;
+    }
+
+    /**
+     * Create the executor chosen by EXECUTOR_PROPERTY.
+     *
+     * @return The new executor
+     */
+    private static ExecutorService createExecutor(){
+        if("virtual".equalsIgnoreCase(System.getProperty(EXECUTOR_PROPERTY))){
+            //Looked up by reflection so that this still compiles and runs on versions without virtual threads
+            try{
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            }
+            catch(ReflectiveOperationException e){
+                //Fall back to the ForkJoinPool
+            }
+        }
+        return POOL;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * A board that can hand out a BoardSnapshot of itself and report an illegal move as a PlaceResult, meaning that the board doesn't need to be copied before asking a player for
+ * a move, and a rejected move doesn't cost an exception.
+ *
+ * @author Steven Lowes
+ */
+public interface SnapshotBoardInterface extends BoardInterface{
+    /**
+     * Returns an immutable snapshot of the board. As it is never changed, it is safe to send to a Player.
+     *
+     * @return a snapshot of the current board state.
+     *
+     * @throws NoBoardDefinedException Thrown when a call is made to this method before the boardSize method.
+     */
+    public BoardSnapshot getSnapshot() throws NoBoardDefinedException;
+
+    /**
+     * Attempts to make a move, reporting a problem with the move as a result rather than an exception. Otherwise the same as placePiece.
+     *
+     * @param colour the colour of the player that is making the move.
+     * @param move the position the player wishes to place a piece. Also stores concession data.
+     *
+     * @return PlaceResult.PLACED or PlaceResult.CONCEDED if the move was made, otherwise the reason it couldn't be.
+     */
+    public PlaceResult tryPlace(Piece colour, MoveInterface move);
+}
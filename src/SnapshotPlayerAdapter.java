@@ -0,0 +1,86 @@
+/**
+ * Allows a player which only implements PlayerInterface to be given a BoardSnapshot. The snapshot is copied into a new array for the player, as the player is free to change the
+ * array it is given.
+ *
+ * @author Steven Lowes
+ */
+public class SnapshotPlayerAdapter implements SnapshotPlayerInterface{
+    /**
+     * The player to pass the board to.
+     */
+    private final PlayerInterface player;
+
+    /**
+     * Create a new adapter for a player.
+     *
+     * @param player The player to pass the board to
+     */
+    public SnapshotPlayerAdapter(PlayerInterface player){
+        this.player = player;
+    }
+
+    /**
+     * Return a player that accepts snapshots - the player itself if it already does, otherwise a new adapter.
+     *
+     * @param player The player to adapt
+     *
+     * @return A SnapshotPlayerInterface for the player
+     */
+    public static SnapshotPlayerInterface adapt(PlayerInterface player){
+        if(player instanceof SnapshotPlayerInterface){
+            return (SnapshotPlayerInterface) player;
+        }
+        return new SnapshotPlayerAdapter(player);
+    }
+
+    /**
+     * Copy the snapshot and ask the player to make a move.
+     *
+     * @param snapshot the current state of the board
+     *
+     * @return The move the player wishes to make
+     *
+     * @throws NoValidMovesException The player found no valid moves
+     */
+    public MoveInterface makeMove(BoardSnapshot snapshot) throws NoValidMovesException{
+        return player.makeMove(snapshot.toBoardView());
+    }
+
+    /**
+     * Ask the player to make a move.
+     *
+     * @param boardView the current state of the board
+     *
+     * @return The move the player wishes to make
+     *
+     * @throws NoValidMovesException The player found no valid moves
+     */
+    public MoveInterface makeMove(Piece[][] boardView) throws NoValidMovesException{
+        return player.makeMove(boardView);
+    }
+
+    /**
+     * Set the colour of the player.
+     *
+     * @param colour A Piece (RED/BLUE) that this player will be
+     *
+     * @return boolean indicating successful operation
+     *
+     * @throws InvalidColourException A colour other than RED/BLUE was provided
+     * @throws ColourAlreadySetException The colour has already been set for this player.
+     */
+    public boolean setColour(Piece colour) throws InvalidColourException, ColourAlreadySetException{
+        return player.setColour(colour);
+    }
+
+    /**
+     * Inform the player of the final game state.
+     *
+     * @param state either WON or LOST
+     *
+     * @return boolean indicating successful operation
+     */
+    public boolean finalGameState(GameState state){
+        return player.finalGameState(state);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * A player that can make a move from a BoardSnapshot, meaning that the board doesn't need to be copied before asking for the move.
+ *
+ * @author Steven Lowes
+ */
+public interface SnapshotPlayerInterface extends PlayerInterface{
+    /**
+     * Ask the player to make a move.
+     *
+     * @param snapshot the current state of the board
+     *
+     * @return a Move object representing the desired place to place a piece
+     *
+     * @throws NoValidMovesException Indicates that no valid moves are possible - e.g. all cells on the board are already occupied by a piece.
+     */
+    public MoveInterface makeMove(BoardSnapshot snapshot) throws NoValidMovesException;
+}
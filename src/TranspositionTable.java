@@ -0,0 +1,139 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size table of the distances of positions that have already been evaluated, keyed by Zobrist hash, so a position reached by different moves, or searched again on a
+ * later turn, doesn't need its shortest paths working out again. One table is shared by every thread without locking.
+ * <p>
+ * Each slot is a pair of longs: the key XOR the data, and the data. The two are written one after the other, so a reader can see half of one write and half of another - but
+ * then the key it works out from them doesn't match, and it is counted as a miss. A new entry always replaces the one in its slot.
+ *
+ * @author Steven Lowes
+ */
+public class TranspositionTable{
+    /**
+     * Returned by probe when the position isn't in the table. Can't be confused with an entry, as distances are never negative.
+     */
+    public static final long NONE = -1L;
+
+    /**
+     * The default number of slots, using 4MB.
+     */
+    public static final int DEFAULT_SIZE = 1 << 18;
+
+    /**
+     * Two longs for each slot - the key XOR the data, then the data.
+     */
+    private final AtomicLongArray slots;
+
+    /**
+     * The number of slots minus one, for finding the slot of a key.
+     */
+    private final int mask;
+
+    /**
+     * The number of lookups.
+     */
+    private final LongAdder probes = new LongAdder();
+
+    /**
+     * The number of lookups that found their position.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Create an empty table.
+     *
+     * @param size The number of slots, rounded up to a power of 2
+     */
+    public TranspositionTable(int size){
+        int slotCount = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+        slots = new AtomicLongArray(2 * slotCount);
+        mask = slotCount - 1;
+    }
+
+    /**
+     * Put the distances of both players together into one entry.
+     *
+     * @param redDistance The fixed point distance for Piece.RED, or Graph.NO_PATH
+     * @param blueDistance The fixed point distance for Piece.BLUE, or Graph.NO_PATH
+     *
+     * @return The entry
+     */
+    public static long pack(int redDistance, int blueDistance){
+        return ((long) redDistance << 32) | (blueDistance & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param entry An entry made by pack
+     *
+     * @return The fixed point distance for Piece.RED
+     */
+    public static int getRedDistance(long entry){
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * @param entry An entry made by pack
+     *
+     * @return The fixed point distance for Piece.BLUE
+     */
+    public static int getBlueDistance(long entry){
+        return (int) entry;
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key The Zobrist hash of the position
+     *
+     * @return The entry stored for the position, or NONE
+     */
+    public long probe(long key){
+        probes.increment();
+        int slot = 2 * ((int) key & mask);
+        long data = slots.get(slot + 1);
+        if((slots.get(slot) ^ data) != key){
+            return NONE;
+        }
+        hits.increment();
+        return data;
+    }
+
+    /**
+     * Store the entry for a position, replacing whatever was in its slot.
+     *
+     * @param key The Zobrist hash of the position
+     * @param entry The entry, made by pack
+     */
+    public void store(long key, long entry){
+        int slot = 2 * ((int) key & mask);
+        slots.set(slot, key ^ entry);
+        slots.set(slot + 1, entry);
+    }
+
+    /**
+     * @return The number of lookups
+     */
+    public long getProbes(){
+        return probes.sum();
+    }
+
+    /**
+     * @return The number of lookups that found their position
+     */
+    public long getHits(){
+        return hits.sum();
+    }
+
+    /**
+     * @return The fraction of lookups that found their position, from 0 to 1
+     */
+    public double getHitRate(){
+        long probeCount = probes.sum();
+        if(probeCount == 0){
+            return 0;
+        }
+        return (double) hits.sum() / probeCount;
+    }
+}
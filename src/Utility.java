@@ -1,6 +1,3 @@
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Stores static utilities.
  *
@@ -42,75 +39,106 @@ public class Utility{
             //player isn't a player colour
             throw new InvalidColourException();
         }
-        //Create a map of where the player has pieces.
-        Boolean[][] playerPieces = new Boolean[sizeX][sizeY];
+        BoardGeometry geometry = BoardGeometry.get(sizeX, sizeY);
+
+        //Create a map of where the player has pieces. Pieces are removed from the map once they are found so the search doesn't return to them.
+        boolean[] playerPieces = new boolean[geometry.getCells()];
         for(int i = 0; i < sizeX; i++){
             for(int j = 0; j < sizeY; j++){
-                playerPieces[i][j] = boardView[i][j] == player;
+                playerPieces[geometry.getHex(i, j)] = boardView[i][j] == player;
             }
         }
+        return playerWon(geometry, playerPieces, player);
+    }
+
+    /**
+     * Check to see if a player has won based on a packed board, without expanding it into a Piece[][].
+     *
+     * @param board The board state
+     * @param player The colour of the player to check
+     *
+     * @return boolean indicating whether that player has won
+     *
+     * @throws InvalidColourException Player parameter isn't Piece.RED or Piece.BLUE
+     */
+    public static boolean playerWon(PackedBoard board, Piece player) throws InvalidColourException{
+        if(player == null || player == Piece.UNSET){
+            throw new InvalidColourException();
+        }
+        BoardGeometry geometry = BoardGeometry.get(board.getSizeX(), board.getSizeY());
+        boolean[] playerPieces = new boolean[geometry.getCells()];
+        for(int hex = 0; hex < playerPieces.length; hex++){
+            playerPieces[hex] = board.getPiece(hex) == player;
+        }
+        return playerWon(geometry, playerPieces, player);
+    }
+
+    /**
+     * Search from the player's first edge for a chain of pieces reaching their second edge.
+     *
+     * @param geometry The geometry of the board
+     * @param playerPieces Which hexes hold the player's pieces. Changed by the search.
+     * @param player The colour of the player to check, Piece.RED or Piece.BLUE
+     *
+     * @return boolean indicating whether that player has won
+     */
+    private static boolean playerWon(BoardGeometry geometry, boolean[] playerPieces, Piece player){
+        int sizeX = geometry.getSizeX();
+        int sizeY = geometry.getSizeY();
 
         //declare, initialise unchecked nodes
-        List<Coordinate> uncheckedNodes = new ArrayList<Coordinate>();
+        int[] uncheckedNodes = new int[geometry.getCells()];
+        int uncheckedCount = 0;
         if(player == Piece.RED){
             for(int i = 0; i < sizeX; i++){
-                if(playerPieces[i][0]){
-                    Coordinate coords = new Coordinate(i, 0);
-                    uncheckedNodes.add(coords);
+                int hex = geometry.getHex(i, 0);
+                if(playerPieces[hex]){
+                    playerPieces[hex] = false;
+                    uncheckedNodes[uncheckedCount++] = hex;
                 }
             }
         }
         else if(player == Piece.BLUE){
             for(int i = 0; i < sizeY; i++){
-                if(playerPieces[0][i]){
-                    Coordinate coords = new Coordinate(0, i);
-                    uncheckedNodes.add(coords);
+                int hex = geometry.getHex(0, i);
+                if(playerPieces[hex]){
+                    playerPieces[hex] = false;
+                    uncheckedNodes[uncheckedCount++] = hex;
                 }
             }
         }
-        //iterate through unchecked nodes checking for connecting nodes
-        while(uncheckedNodes.size() > 0){
-            //get the coordinates we're checking
-            Coordinate coords = uncheckedNodes.get(0);
-            //and it's not unchecked anymore
-            uncheckedNodes.remove(0);
-            if(coords.valid(sizeX, sizeY)){
-                //prevent search returning to this hex
-                playerPieces[coords.getX()][coords.getY()] = false;
+        //iterate through unchecked nodes checking for connecting nodes, depth first
+        while(uncheckedCount > 0){
+            int hex = uncheckedNodes[--uncheckedCount];
 
-                //check if it's at the far edge yet
-                if((coords.getX() == sizeX - 1 && player == Piece.BLUE) || coords.getY() == sizeY - 1 && player == Piece.RED){
-                    return true;
-                }
+            //check if it's at the far edge yet
+            if((player == Piece.BLUE && geometry.getX(hex) == sizeX - 1) || (player == Piece.RED && geometry.getY(hex) == sizeY - 1)){
+                return true;
+            }
 
-                //if not, look at the adjacent hexes and add them to the list
-                List<Coordinate> adjacents = coords.getAdjactents(sizeX, sizeY);
-                for(Coordinate newCoords : adjacents){
-                    if(playerPieces[newCoords.getX()][newCoords.getY()]){
-                        //Place piece into unchecked nodes list in the correct place to maintain sorting
-                        playerPieces[newCoords.getX()][newCoords.getY()] = false;
-                        boolean found = false;
-                        int j = 0;
-                        while(!found && j < uncheckedNodes.size()){
-                            if(player == Piece.RED){
-                                if(newCoords.getY() > uncheckedNodes.get(j).getY()){
-                                    found = true;
-                                }
-                            }
-                            else{
-                                if(newCoords.getX() > uncheckedNodes.get(j).getX()){
-                                    found = true;
-                                }
-                            }
-                            j++;
-                        }
-                        uncheckedNodes.add(j, newCoords);
-                    }
+            //if not, look at the adjacent hexes and add them to the list
+            for(int i = geometry.getAdjacentStart(hex); i < geometry.getAdjacentStart(hex + 1); i++){
+                int adjacent = geometry.getAdjacent(i);
+                if(playerPieces[adjacent]){
+                    playerPieces[adjacent] = false;
+                    uncheckedNodes[uncheckedCount++] = adjacent;
                 }
             }
         }
         //Run out of unchecked nodes, not returned true
         return false;
     }
-}
 
+    /**
+     * Find the winner of a board with no free hexes. Hex can't be drawn, so on a full board red has won if a chain of red pieces joins the top to the bottom, and blue has won
+     * otherwise - a single flood fill of the red pieces decides the game. Nothing is allocated, so this can be called for every game in a playout.
+     *
+     * @param board A board of the same size, whose flood fill is used
+     * @param redPieces The red pieces, one bit per hex, numbered x * sizeY + y
+     *
+     * @return Piece.RED or Piece.BLUE
+     */
+    public static Piece fullBoardWinner(BitBoard board, long[] redPieces){
+        return board.connects(Piece.RED, redPieces) ? Piece.RED : Piece.BLUE;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * How much of a search one worker thread spent busy, so that the split of the work between threads can be checked. A worker that finishes its share early and then sits idle
+ * shows up with a low utilisation.
+ *
+ * @author Steven Lowes
+ */
+public class WorkerStats{
+    /**
+     * The name of the worker thread.
+     */
+    private final String name;
+
+    /**
+     * The number of tasks the worker ran.
+     */
+    private final int tasks;
+
+    /**
+     * The time the worker spent running tasks, in nanoseconds.
+     */
+    private final long busyNanos;
+
+    /**
+     * The time the search took, in nanoseconds.
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Initialise the variables passed as parameters.
+     *
+     * @param name The name of the worker thread
+     * @param tasks The number of tasks the worker ran
+     * @param busyNanos The time the worker spent running tasks, in nanoseconds
+     * @param elapsedNanos The time the search took, in nanoseconds
+     */
+    public WorkerStats(String name, int tasks, long busyNanos, long elapsedNanos){
+        this.name = name;
+        this.tasks = tasks;
+        this.busyNanos = busyNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The name of the worker thread
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * @return The number of tasks the worker ran
+     */
+    public int getTasks(){
+        return tasks;
+    }
+
+    /**
+     * @return The time the worker spent running tasks, in nanoseconds
+     */
+    public long getBusyNanos(){
+        return busyNanos;
+    }
+
+    /**
+     * @return The fraction of the search the worker spent running tasks, from 0 to 1
+     */
+    public double getUtilisation(){
+        if(elapsedNanos <= 0){
+            return 0;
+        }
+        return Math.min(1, (double) busyNanos / elapsedNanos);
+    }
+
+    /**
+     * @return The stats on one line, for logging
+     */
+    public String toString(){
+        return name + ": " + tasks + " tasks, " + busyNanos / 1000000 + "ms busy, " + Math.round(getUtilisation() * 100) + "% utilisation";
+    }
+}
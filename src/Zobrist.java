@@ -0,0 +1,49 @@
+/**
+ * Zobrist hashing of board positions. Every combination of hex and colour has a fixed random 64-bit key, and the hash of a position is the XOR of the keys of every piece on the
+ * board. Placing a piece therefore only needs one XOR to update the hash, and two positions with the same pieces always have the same hash however they were reached. Hex (x, y)
+ * is numbered x * sizeY + y, so hashes are only comparable between boards of the same size.
+ *
+ * @author Steven Lowes
+ */
+public class Zobrist{
+    /**
+     * The hash of an empty board.
+     */
+    public static final long EMPTY = 0L;
+
+    /**
+     * Get the key for a piece of a colour on a hex. The keys are generated by mixing the hex number and colour with the SplitMix64 finaliser rather than being stored in a table,
+     * so there is no limit on board size and every thread and every run sees the same keys.
+     *
+     * @param hex The hex number (x * sizeY + y)
+     * @param colour The colour of the piece, Piece.RED or Piece.BLUE
+     *
+     * @return The key for the piece
+     */
+    public static long key(int hex, Piece colour){
+        long z = (2L * hex + (colour == Piece.RED ? 1 : 2)) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Calculate the hash of a board by scanning every hex. Engines should prefer keeping a hash up to date with key() as pieces are placed.
+     *
+     * @param boardView The board state
+     *
+     * @return The hash of the board
+     */
+    public static long hash(Piece[][] boardView){
+        int sizeY = boardView[0].length;
+        long hash = EMPTY;
+        for(int i = 0; i < boardView.length; i++){
+            for(int j = 0; j < sizeY; j++){
+                if(boardView[i][j] == Piece.RED || boardView[i][j] == Piece.BLUE){
+                    hash ^= key(i * sizeY + j, boardView[i][j]);
+                }
+            }
+        }
+        return hash;
+    }
+}